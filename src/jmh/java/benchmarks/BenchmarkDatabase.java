@@ -0,0 +1,67 @@
+package benchmarks;
+
+import entities.User;
+import orm.DBContext;
+import orm.EntityManagerBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+final class BenchmarkDatabase {
+
+    static final String SCHEMA = "bench";
+
+    private static final String URL = "jdbc:h2:mem:%s;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private static final String[] DDL = {
+            "CREATE SCHEMA IF NOT EXISTS " + SCHEMA,
+            "DROP TABLE IF EXISTS " + SCHEMA + ".users",
+            "DROP TABLE IF EXISTS " + SCHEMA + ".towns",
+            "CREATE TABLE " + SCHEMA + ".users(id INT AUTO_INCREMENT PRIMARY KEY, user_name VARCHAR(50), " +
+                    "age INT, registration_date DATETIME, address VARCHAR(50), town_id INT)",
+            "CREATE TABLE " + SCHEMA + ".towns(id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(50))"
+    };
+
+    private BenchmarkDatabase() {
+    }
+
+    static String url(String name) {
+        return String.format(URL, name);
+    }
+
+    static DBContext open(String name, EntityManagerBuilder builder) throws SQLException, ClassNotFoundException {
+        String url = url(name);
+
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement stmt = connection.createStatement()) {
+            for (String ddl : DDL) {
+                stmt.execute(ddl);
+            }
+        }
+
+        return builder.setConnectionFactory(() -> DriverManager.getConnection(url))
+                .setDataSource(SCHEMA)
+                .build();
+    }
+
+    static void truncate(String name, String table) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url(name));
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("TRUNCATE TABLE " + SCHEMA + "." + table + " RESTART IDENTITY");
+        }
+    }
+
+    static List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        Date now = new Date();
+        for (int i = 0; i < count; i++) {
+            users.add(new User("user" + i, 18 + i % 60, now, "Address " + i));
+        }
+        return users;
+    }
+}
@@ -0,0 +1,108 @@
+package benchmarks;
+
+import entities.Town;
+import entities.User;
+import orm.DBContext;
+import orm.EntityManagerBuilder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HydrationBenchmark {
+
+    private static final String DB_NAME = "hydration";
+    private static final String JDBC_QUERY = "SELECT id, user_name, age, registration_date, address, town_id FROM bench.users";
+
+    @Param({"100", "10000"})
+    private int rows;
+
+    private DBContext context;
+    private Connection connection;
+    private List<Integer> ids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        this.context = BenchmarkDatabase.open(DB_NAME, new EntityManagerBuilder().setStreamFetchSize(1000));
+        this.context.persistAll(BenchmarkDatabase.users(this.rows));
+        this.context.persist(new Town("Sofia"));
+
+        this.connection = DriverManager.getConnection(BenchmarkDatabase.url(DB_NAME));
+
+        this.ids = new ArrayList<>();
+        for (int id = 1; id <= Math.min(this.rows, 100); id++) {
+            this.ids.add(id);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        this.connection.close();
+        this.context.close();
+    }
+
+    @Benchmark
+    public Iterable<User> findAll() throws Exception {
+        return this.context.find(User.class);
+    }
+
+    @Benchmark
+    public void streamAll(Blackhole blackhole) throws Exception {
+        try (Stream<User> users = this.context.stream(User.class)) {
+            users.forEach(blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public List<User> handWrittenJdbc() throws Exception {
+        List<User> users = new ArrayList<>();
+
+        try (PreparedStatement stmt = this.connection.prepareStatement(JDBC_QUERY);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                User user = new User();
+                user.setId(rs.getInt(1));
+                user.setUsername(rs.getString(2));
+                user.setAge(rs.getInt(3));
+                user.setRegistrationDate(rs.getDate(4));
+                user.setAddress(rs.getString(5));
+                users.add(user);
+            }
+        }
+
+        return users;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public User findById() throws Exception {
+        return this.context.findById(User.class, ThreadLocalRandom.current().nextInt(1, this.rows + 1));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<User> findAllById() throws Exception {
+        return this.context.findAllById(User.class, this.ids);
+    }
+
+    //towns are @Cacheable, after the first call this is served by the second-level cache
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Town findCachedById() throws Exception {
+        return this.context.findById(Town.class, 1);
+    }
+}
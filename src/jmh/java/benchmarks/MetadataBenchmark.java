@@ -0,0 +1,77 @@
+package benchmarks;
+
+import annotations.Column;
+import annotations.Entity;
+import annotations.PrimaryKey;
+import entities.User;
+import metadata.EntityMetadata;
+import metadata.MetadataRegistry;
+import metadata.MethodHandleAccessorFactory;
+import metadata.PropertyAccessor;
+import metadata.ReflectionAccessorFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+//the reflection scan repeats what each CRUD call did before the metadata was cached
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetadataBenchmark {
+
+    private User user;
+    private Field ageField;
+    private PropertyAccessor reflectionAccessor;
+    private PropertyAccessor methodHandleAccessor;
+
+    @Setup
+    public void setUp() throws Exception {
+        this.user = BenchmarkDatabase.users(1).get(0);
+
+        this.ageField = User.class.getDeclaredField("age");
+        this.reflectionAccessor = new ReflectionAccessorFactory().createAccessor(this.ageField);
+        this.methodHandleAccessor = new MethodHandleAccessorFactory().createAccessor(this.ageField);
+    }
+
+    @Benchmark
+    public void reflectionScan(Blackhole blackhole) {
+        blackhole.consume(User.class.getAnnotation(Entity.class).name());
+        for (Field field : User.class.getDeclaredFields()) {
+            field.setAccessible(true);
+            if (field.isAnnotationPresent(PrimaryKey.class)) {
+                blackhole.consume(field);
+            }
+            blackhole.consume(field.getAnnotation(Column.class).name());
+        }
+    }
+
+    @Benchmark
+    public EntityMetadata registryLookup() {
+        return MetadataRegistry.get(User.class);
+    }
+
+    @Benchmark
+    public Object reflectionGet() {
+        return this.reflectionAccessor.get(this.user);
+    }
+
+    @Benchmark
+    public Object methodHandleGet() {
+        return this.methodHandleAccessor.get(this.user);
+    }
+
+    @Benchmark
+    public void reflectionSet() {
+        this.reflectionAccessor.set(this.user, 42);
+    }
+
+    @Benchmark
+    public void methodHandleSet() {
+        this.methodHandleAccessor.set(this.user, 42);
+    }
+}
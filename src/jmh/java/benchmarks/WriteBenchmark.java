@@ -0,0 +1,75 @@
+package benchmarks;
+
+import entities.User;
+import orm.DBContext;
+import orm.EntityManagerBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriteBenchmark {
+
+    private static final String DB_NAME = "writes";
+    private static final int BATCH = 1000;
+
+    @Param({"false", "true"})
+    private boolean multiRowInserts;
+
+    private DBContext context;
+    private List<User> loaded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        this.context = BenchmarkDatabase.open(DB_NAME, new EntityManagerBuilder()
+                .setBatchSize(BATCH)
+                .setMultiRowInserts(this.multiRowInserts));
+    }
+
+    @Setup(Level.Iteration)
+    public void resetTable() throws Exception {
+        BenchmarkDatabase.truncate(DB_NAME, "users");
+
+        this.loaded = BenchmarkDatabase.users(BATCH);
+        this.context.persistAll(this.loaded);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.context.close();
+    }
+
+    @Benchmark
+    public void insertSingle() throws Exception {
+        for (User user : BenchmarkDatabase.users(BATCH)) {
+            this.context.persist(user);
+        }
+    }
+
+    @Benchmark
+    public void insertBatch() throws Exception {
+        this.context.persistAll(BenchmarkDatabase.users(BATCH));
+    }
+
+    @Benchmark
+    public void updateSingle() throws Exception {
+        for (User user : this.loaded) {
+            user.setAge(user.getAge() + 1);
+            this.context.persist(user);
+        }
+    }
+
+    @Benchmark
+    public void updateBatch() throws Exception {
+        for (User user : this.loaded) {
+            user.setAge(user.getAge() + 1);
+        }
+        this.context.persistAll(this.loaded);
+    }
+}
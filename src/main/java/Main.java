@@ -1,6 +1,10 @@
 import entities.Town;
 import entities.User;
+import metrics.QueryMetrics;
 import orm.*;
+import query.Order;
+import query.Page;
+import query.PageRequest;
 import strategies.Strategies;
 
 import java.util.*;
@@ -10,6 +14,10 @@ public class Main {
 
         EntityManagerBuilder entityBuilder = new EntityManagerBuilder();
 
+        //latency, rows and batch sizes per table and operation, statements over 200 ms are logged
+        QueryMetrics metrics = new QueryMetrics().setSlowQueryThreshold(200);
+        metrics.registerMBeans();
+
         DBContext entityManager =
                 entityBuilder.configureConnectionString()
                         .setAdapter("jdbc")
@@ -20,17 +28,20 @@ public class Main {
                         .setPassword("password")
                         .createConnection()
                         .setDataSource("dbName")
+                        .setStatementListener(metrics)
                         .setStrategy(Strategies.UPDATE)
                         .build();
 
-        User user = new User("userName", 19, new Date(), "Sofia");
+        Town town = new Town("Sofia");
 
         //persist() must be called every time when you want to save an instance of an Entity class in the database
-        entityManager.persist(user);
-
-        Town town = new Town("Sofia");
         entityManager.persist(town);
 
+        //@ManyToOne references are stored as foreign keys and loaded lazily, in one query per result
+        User user = new User("userName", 19, new Date(), "Sofia");
+        user.setTown(town);
+        entityManager.persist(user);
+
         //findFirst() will return the first record in the database, if it exists otherwise null
         User firstUser = entityManager.findFirst(User.class);
 
@@ -43,6 +54,27 @@ public class Main {
 
         List<Town> towns = (List<Town>) entityManager.find(Town.class, " id BETWEEN 1 AND 10");
 
+        //the same filter through the query builder, values are bound as parameters of a cached statement
+        List<Town> orderedTowns = entityManager.query(Town.class)
+                .where("id").between(1, 10)
+                .orderBy(Order.desc("name"))
+                .limit(5)
+                .list();
+
+        //keyset paging, each page continues after the last row of the previous one
+        Page<User> page = entityManager.page(User.class, PageRequest.of(50).sortBy("user_name"));
+        while (page.hasNext()) {
+            page = entityManager.page(User.class, page.next());
+        }
+
+        //writes inside a transaction are sent as JDBC batches and committed once
+        entityManager.inTransaction(() -> {
+            for (int i = 0; i < 1000; i++) {
+                entityManager.persist(new User("user" + i, 20, new Date(), "Sofia"));
+            }
+            return null;
+        });
+
         //Remove the passed entity instance from the database
         entityManager.doDelete(firstUser);
     }
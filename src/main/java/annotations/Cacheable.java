@@ -0,0 +1,19 @@
+package annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Cacheable {
+    //maximum number of cached rows, the least recently used one is evicted first
+    int maxSize() default 1000;
+
+    //time to live of a cached row in seconds, 0 means no expiration
+    long ttlSeconds() default 0;
+
+    //cache the primary keys returned by find() and findFirst() per WHERE clause
+    boolean cacheQueries() default false;
+}
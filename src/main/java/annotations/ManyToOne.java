@@ -0,0 +1,14 @@
+package annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+//declared on a Reference<Target> field, the foreign key is stored in this entity's table
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface ManyToOne {
+    //foreign key column holding the primary key of the referenced entity
+    String column();
+}
@@ -0,0 +1,14 @@
+package annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+//read-only inverse side of a ManyToOne, declared on a List<Target> field
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface OneToMany {
+    //foreign key column of the target table referencing this entity
+    String column();
+}
@@ -0,0 +1,17 @@
+package annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+//assigns ids from blocks reserved in the miniorm_sequences table
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface SequenceGenerator {
+    //row of the sequence table, defaults to the table name of the entity
+    String name() default "";
+
+    //IDs reserved per round trip, unused IDs of a block are lost when the process stops
+    int allocationSize() default 50;
+}
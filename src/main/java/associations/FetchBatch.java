@@ -0,0 +1,48 @@
+package associations;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//the first association resolved loads every pending key with one loader call
+public final class FetchBatch<V> {
+
+    private final Loader<V> loader;
+    private final Set<Object> pending;
+    private final Map<Object, V> loaded;
+
+    public FetchBatch(Loader<V> loader) {
+        this.loader = loader;
+        this.pending = new LinkedHashSet<>();
+        this.loaded = new HashMap<>();
+    }
+
+    public synchronized void register(Object key) {
+        if (!this.loaded.containsKey(key)) {
+            this.pending.add(key);
+        }
+    }
+
+    //value of the key, null when the loader found nothing
+    public synchronized V get(Object key) {
+        if (!this.loaded.containsKey(key)) {
+            this.pending.add(key);
+
+            Map<Object, V> values = this.loader.load(new ArrayList<>(this.pending));
+            for (Object pendingKey : this.pending) {
+                this.loaded.put(pendingKey, values.get(pendingKey));
+            }
+            this.pending.clear();
+        }
+
+        return this.loaded.get(key);
+    }
+
+    public interface Loader<V> {
+        //values by key, missing keys have no value
+        Map<Object, V> load(List<Object> keys);
+    }
+}
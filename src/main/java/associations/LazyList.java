@@ -0,0 +1,40 @@
+package associations;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+
+public final class LazyList<E> extends AbstractList<E> {
+
+    private final FetchBatch<List<E>> batch;
+    private final Object owner;
+    private List<E> elements;
+
+    public LazyList(FetchBatch<List<E>> batch, Object owner) {
+        this.batch = batch;
+        this.owner = owner;
+        batch.register(owner);
+    }
+
+    public synchronized boolean isLoaded() {
+        return this.elements != null;
+    }
+
+    @Override
+    public E get(int index) {
+        return this.elements().get(index);
+    }
+
+    @Override
+    public int size() {
+        return this.elements().size();
+    }
+
+    private synchronized List<E> elements() {
+        if (this.elements == null) {
+            List<E> elements = this.batch.get(this.owner);
+            this.elements = elements == null ? Collections.<E>emptyList() : Collections.unmodifiableList(elements);
+        }
+        return this.elements;
+    }
+}
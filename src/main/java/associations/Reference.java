@@ -0,0 +1,56 @@
+package associations;
+
+public final class Reference<E> {
+
+    private final Object id;
+    private E entity;
+    private boolean loaded;
+    private FetchBatch<E> batch;
+
+    private Reference(Object id, E entity, boolean loaded) {
+        this.id = id;
+        this.entity = entity;
+        this.loaded = loaded;
+    }
+
+    public static <E> Reference<E> to(E entity) {
+        return new Reference<>(null, entity, true);
+    }
+
+    //reference by primary key, loaded on get() once it was read through an entity manager
+    public static <E> Reference<E> of(Object id) {
+        if (id == null) {
+            throw new IllegalArgumentException("Reference id must not be null");
+        }
+        return new Reference<>(id, null, false);
+    }
+
+    //primary key of the referenced entity, null for references created with to()
+    public Object getId() {
+        return this.id;
+    }
+
+    public synchronized boolean isLoaded() {
+        return this.loaded;
+    }
+
+    public synchronized E get() {
+        if (!this.loaded) {
+            if (this.batch == null) {
+                throw new IllegalStateException("Reference to " + this.id + " is not attached to an entity manager");
+            }
+            this.entity = this.batch.get(this.id);
+            this.batch = null;
+            this.loaded = true;
+        }
+
+        return this.entity;
+    }
+
+    public synchronized void attach(FetchBatch<E> batch) {
+        if (!this.loaded) {
+            this.batch = batch;
+            batch.register(this.id);
+        }
+    }
+}
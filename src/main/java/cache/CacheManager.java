@@ -0,0 +1,38 @@
+package cache;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+//the shared instance is used by every EntityManager not given its own
+public class CacheManager {
+
+    private static final CacheManager SHARED = new CacheManager();
+
+    private final ConcurrentMap<String, CacheRegion> regions = new ConcurrentHashMap<>();
+
+    public static CacheManager getShared() {
+        return SHARED;
+    }
+
+    //the size and ttl only apply when the region is created by the first caller
+    public CacheRegion getRegion(String name, int maxSize, long ttlSeconds) {
+        return this.regions.computeIfAbsent(name, n -> new CacheRegion(maxSize, ttlSeconds));
+    }
+
+    public CacheStatistics getStatistics(String regionName) {
+        CacheRegion region = this.regions.get(regionName);
+        return region == null ? null : region.getStatistics();
+    }
+
+    public Map<String, CacheRegion> getRegions() {
+        return Collections.unmodifiableMap(this.regions);
+    }
+
+    public void clear() {
+        for (CacheRegion region : this.regions.values()) {
+            region.invalidateAll();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class CacheRegion {
+
+    private final long ttlNanos;
+    private final LinkedHashMap<Object, CachedValue> entries;
+    private final CacheStatistics statistics;
+
+    CacheRegion(int maxSize, long ttlSeconds) {
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+        this.statistics = new CacheStatistics();
+        this.entries = new LinkedHashMap<Object, CachedValue>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, CachedValue> eldest) {
+                if (this.size() > maxSize) {
+                    statistics.recordEviction();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized Object get(Object key) {
+        CachedValue entry = this.entries.get(key);
+
+        if (entry != null && this.ttlNanos > 0 && System.nanoTime() - entry.createdAt > this.ttlNanos) {
+            this.entries.remove(key);
+            this.statistics.recordEviction();
+            entry = null;
+        }
+
+        if (entry == null) {
+            this.statistics.recordMiss();
+            return null;
+        }
+
+        this.statistics.recordHit();
+        return entry.value;
+    }
+
+    public synchronized void put(Object key, Object value) {
+        this.entries.put(key, new CachedValue(value));
+        this.statistics.recordPut();
+    }
+
+    public synchronized void invalidate(Object key) {
+        if (this.entries.remove(key) != null) {
+            this.statistics.recordInvalidation();
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        if (!this.entries.isEmpty()) {
+            this.statistics.recordInvalidation();
+            this.entries.clear();
+        }
+    }
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    public CacheStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    private static final class CachedValue {
+
+        private final Object value;
+        private final long createdAt;
+
+        CachedValue(Object value) {
+            this.value = value;
+            this.createdAt = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class CacheStatistics {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    public long getPuts() {
+        return this.puts.sum();
+    }
+
+    //entries removed because the region was full or they expired
+    public long getEvictions() {
+        return this.evictions.sum();
+    }
+
+    //entries removed because the underlying rows were written
+    public long getInvalidations() {
+        return this.invalidations.sum();
+    }
+
+    public double getHitRate() {
+        long hits = this.getHits();
+        long requests = hits + this.getMisses();
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    void recordHit() {
+        this.hits.increment();
+    }
+
+    void recordMiss() {
+        this.misses.increment();
+    }
+
+    void recordPut() {
+        this.puts.increment();
+    }
+
+    void recordEviction() {
+        this.evictions.increment();
+    }
+
+    void recordInvalidation() {
+        this.invalidations.increment();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d, misses=%d, puts=%d, evictions=%d, invalidations=%d",
+                this.getHits(), this.getMisses(), this.getPuts(), this.getEvictions(), this.getInvalidations());
+    }
+}
@@ -1,10 +1,16 @@
 package entities;
 
+import annotations.Cacheable;
 import annotations.Column;
 import annotations.Entity;
+import annotations.OneToMany;
 import annotations.PrimaryKey;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Entity(name = "towns")
+@Cacheable(maxSize = 500, cacheQueries = true)
 public class Town {
 
     @PrimaryKey
@@ -14,10 +20,17 @@ public class Town {
     @Column(name = "name")
     String name;
 
+    @OneToMany(column = "town_id")
+    List<User> residents = new ArrayList<>();
+
     public Town() {
     }
 
     public Town(String name) {
         this.name = name;
     }
+
+    public List<User> getResidents() {
+        return residents;
+    }
 }
@@ -2,7 +2,9 @@ package entities;
 
 import annotations.Column;
 import annotations.Entity;
+import annotations.ManyToOne;
 import annotations.PrimaryKey;
+import associations.Reference;
 
 import java.util.Date;
 
@@ -25,6 +27,9 @@ public class User {
     @Column(name = "address")
     private String address;
 
+    @ManyToOne(column = "town_id")
+    private Reference<Town> town;
+
     public User(String username, int age, Date registrationDate, String address) {
         this.username = username;
         this.age = age;
@@ -74,4 +79,12 @@ public class User {
     public void setAddress(String address) {
         this.address = address;
     }
+
+    public Town getTown() {
+        return town == null ? null : town.get();
+    }
+
+    public void setTown(Town town) {
+        this.town = town == null ? null : Reference.to(town);
+    }
 }
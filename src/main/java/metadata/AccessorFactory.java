@@ -0,0 +1,11 @@
+package metadata;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+
+public interface AccessorFactory {
+
+    PropertyAccessor createAccessor(Field field);
+
+    EntityInstantiator createInstantiator(Constructor<?> constructor);
+}
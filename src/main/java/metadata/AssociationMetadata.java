@@ -0,0 +1,156 @@
+package metadata;
+
+import annotations.ManyToOne;
+import annotations.OneToMany;
+import annotations.PrimaryKey;
+import associations.Reference;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+public final class AssociationMetadata {
+
+    private final String name;
+    private final Field field;
+    private final Class<?> targetClass;
+    private final String columnName;
+    private final boolean collection;
+    private final PropertyAccessor accessor;
+    private final ColumnMetadata foreignKey;
+
+    AssociationMetadata(Field field, AccessorFactory accessorFactory) {
+        this.name = field.getName();
+        this.field = field;
+        this.accessor = accessorFactory.createAccessor(field);
+        this.collection = field.isAnnotationPresent(OneToMany.class);
+
+        if (this.collection) {
+            this.columnName = field.getAnnotation(OneToMany.class).column();
+            this.targetClass = typeArgument(field, List.class);
+            this.foreignKey = null;
+        } else {
+            this.columnName = field.getAnnotation(ManyToOne.class).column();
+            this.targetClass = typeArgument(field, Reference.class);
+            this.foreignKey = this.createForeignKey();
+        }
+    }
+
+    //field name, used by Query.fetch()
+    public String getName() {
+        return this.name;
+    }
+
+    public Field getField() {
+        return this.field;
+    }
+
+    public Class<?> getTargetClass() {
+        return this.targetClass;
+    }
+
+    //foreign key column, in this entity's table for many-to-one and in the target table for one-to-many
+    public String getColumnName() {
+        return this.columnName;
+    }
+
+    public boolean isCollection() {
+        return this.collection;
+    }
+
+    //foreign key column of a many-to-one association, null for one-to-many
+    public ColumnMetadata getForeignKey() {
+        return this.foreignKey;
+    }
+
+    //the Reference or List held by the field
+    public Object getValue(Object entity) {
+        return this.accessor.get(entity);
+    }
+
+    public void setValue(Object entity, Object value) {
+        this.accessor.set(entity, value);
+    }
+
+    /*
+    The key column reads and writes the primary key of the referenced entity. Its type comes from the
+    @PrimaryKey field of the target class, not from its metadata, so self references do not recurse.
+    */
+    private ColumnMetadata createForeignKey() {
+        Class<?> keyType = null;
+        for (Field targetField : this.targetClass.getDeclaredFields()) {
+            if (targetField.isAnnotationPresent(PrimaryKey.class)) {
+                keyType = targetField.getType();
+            }
+        }
+        if (keyType == null) {
+            throw new UnsupportedOperationException("Entity does not have primary key!");
+        }
+
+        TypeConverter keyConverter = TypeConverters.forType(keyType);
+        TypeConverter converter = new TypeConverter() {
+            @Override
+            public String getSqlType() {
+                return keyConverter.getSqlType();
+            }
+
+            @Override
+            public Object read(ResultSet rs, int index) throws SQLException {
+                Object value = keyConverter.read(rs, index);
+                return rs.wasNull() ? null : value;
+            }
+
+            @Override
+            public void bind(PreparedStatement stmt, int index, Object value) throws SQLException {
+                keyConverter.bind(stmt, index, value);
+            }
+        };
+
+        PropertyAccessor accessor = new PropertyAccessor() {
+            @Override
+            public Object get(Object entity) {
+                Reference<?> reference = (Reference<?>) AssociationMetadata.this.accessor.get(entity);
+                if (reference == null) {
+                    return null;
+                }
+                if (reference.getId() != null) {
+                    return reference.getId();
+                }
+
+                Object target = reference.get();
+                if (target == null) {
+                    return null;
+                }
+
+                //an unsaved target has no key yet, writing its 0 or null would leave a dangling foreign key
+                Object id = MetadataRegistry.get(AssociationMetadata.this.targetClass).getPrimaryKey().getValue(target);
+                if (id == null || id instanceof Number && ((Number) id).longValue() <= 0) {
+                    throw new IllegalStateException(String.format("%s references a %s that is not persisted yet, persist it first",
+                            AssociationMetadata.this.name, AssociationMetadata.this.targetClass.getSimpleName()));
+                }
+                return id;
+            }
+
+            @Override
+            public void set(Object entity, Object value) {
+                AssociationMetadata.this.accessor.set(entity, value == null ? null : Reference.of(value));
+            }
+        };
+
+        return new ColumnMetadata(this.columnName, this.field, keyType, converter, accessor);
+    }
+
+    private static Class<?> typeArgument(Field field, Class<?> expected) {
+        Type type = field.getGenericType();
+        if (field.getType() != expected || !(type instanceof ParameterizedType)) {
+            throw new IllegalArgumentException(String.format("Association %s must be declared as %s<Entity>",
+                    field.getName(), expected.getSimpleName()));
+        }
+
+        return (Class<?>) ((ParameterizedType) type).getActualTypeArguments()[0];
+    }
+}
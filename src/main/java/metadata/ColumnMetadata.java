@@ -0,0 +1,150 @@
+package metadata;
+
+import annotations.Column;
+import annotations.PrimaryKey;
+import annotations.Version;
+
+import java.lang.reflect.Field;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+
+public final class ColumnMetadata {
+
+    private static final String VERSION_TIMESTAMP_TYPE = "DATETIME(3)";
+
+    private final String name;
+    private final Field field;
+    private final Class<?> javaType;
+    private final TypeConverter converter;
+    private final PropertyAccessor accessor;
+    private final boolean primaryKey;
+    private final boolean version;
+
+    ColumnMetadata(Field field, AccessorFactory accessorFactory) {
+        this.name = field.getAnnotation(Column.class).name();
+        this.field = field;
+        this.javaType = field.getType();
+        this.converter = TypeConverters.forType(field.getType());
+        this.accessor = accessorFactory.createAccessor(field);
+        this.primaryKey = field.isAnnotationPresent(PrimaryKey.class);
+        this.version = field.isAnnotationPresent(Version.class);
+    }
+
+    //column not backed by a plain field value, e.g. the foreign key of an association
+    ColumnMetadata(String name, Field field, Class<?> javaType, TypeConverter converter, PropertyAccessor accessor) {
+        this.name = name;
+        this.field = field;
+        this.javaType = javaType;
+        this.converter = converter;
+        this.accessor = accessor;
+        this.primaryKey = false;
+        this.version = false;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public Field getField() {
+        return this.field;
+    }
+
+    public Class<?> getJavaType() {
+        return this.javaType;
+    }
+
+    public String getSqlType() {
+        //timestamp versions keep milliseconds, so the version written is the one compared next time
+        if (this.version && !isIntegral(this.javaType)) {
+            return VERSION_TIMESTAMP_TYPE;
+        }
+        return this.converter.getSqlType();
+    }
+
+    public TypeConverter getConverter() {
+        return this.converter;
+    }
+
+    public boolean isPrimaryKey() {
+        return this.primaryKey;
+    }
+
+    public boolean isVersion() {
+        return this.version;
+    }
+
+    public Object getValue(Object entity) {
+        return this.accessor.get(entity);
+    }
+
+    public void setValue(Object entity, Object value) {
+        this.accessor.set(entity, value);
+    }
+
+    //the value as the Java type of the column, e.g. a Long id of an Integer key, other values are returned as they are
+    public Object toJavaType(Object value) {
+        if (!(value instanceof Number) || !isIntegral(this.javaType)) {
+            return value;
+        }
+        return this.toIntegral(((Number) value).longValue());
+    }
+
+    //reads the column at the index into the entity, primitive values are not boxed on the way
+    public void readValue(Object entity, ResultSet rs, int index) throws SQLException {
+        this.converter.readInto(rs, index, entity, this.accessor);
+    }
+
+    //version of a new row: zero, or the current time for timestamp versions
+    public Object initialVersion() {
+        if (isIntegral(this.javaType)) {
+            return this.toIntegral(0);
+        }
+        return toVersionType(System.currentTimeMillis());
+    }
+
+    //version written by an update of a row read with the current version
+    public Object nextVersion(Object current) {
+        if (current == null) {
+            return isIntegral(this.javaType) ? this.toIntegral(1) : this.initialVersion();
+        }
+        if (current instanceof Number) {
+            return this.toIntegral(((Number) current).longValue() + 1);
+        }
+
+        long currentMillis = toMillis(current);
+        //two updates within the same millisecond must still write different versions
+        return toVersionType(Math.max(System.currentTimeMillis(), currentMillis + 1));
+    }
+
+    private Object toIntegral(long value) {
+        return this.javaType == long.class || this.javaType == Long.class ? (Object) value : (Object) Math.toIntExact(value);
+    }
+
+    private Object toVersionType(long millis) {
+        if (this.javaType == Instant.class) {
+            return Instant.ofEpochMilli(millis);
+        }
+        if (this.javaType == LocalDateTime.class) {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        }
+        return new Date(millis);
+    }
+
+    private static long toMillis(Object timestamp) {
+        if (timestamp instanceof Instant) {
+            return ((Instant) timestamp).toEpochMilli();
+        }
+        if (timestamp instanceof LocalDateTime) {
+            return ((LocalDateTime) timestamp).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+        return ((Date) timestamp).getTime();
+    }
+
+    public static boolean isIntegral(Class<?> type) {
+        return type == int.class || type == Integer.class || type == long.class || type == Long.class;
+    }
+}
@@ -0,0 +1,6 @@
+package metadata;
+
+public interface EntityInstantiator {
+
+    Object newInstance();
+}
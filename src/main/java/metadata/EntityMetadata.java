@@ -0,0 +1,197 @@
+package metadata;
+
+import annotations.Cacheable;
+import annotations.Column;
+import annotations.Entity;
+import annotations.ManyToOne;
+import annotations.OneToMany;
+import annotations.SequenceGenerator;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//columns keep the declaration order of the entity fields
+public final class EntityMetadata {
+
+    private final Class<?> entityClass;
+    private final String tableName;
+    private final List<ColumnMetadata> columns;
+    private final List<ColumnMetadata> nonKeyColumns;
+    private final Map<String, ColumnMetadata> columnsByName;
+    private final ColumnMetadata primaryKey;
+    private final ColumnMetadata version;
+    private final List<AssociationMetadata> associations;
+    private final EntityInstantiator instantiator;
+    private final Cacheable cacheable;
+    private final SequenceGenerator sequenceGenerator;
+    private final List<ColumnMetadata> insertColumns;
+
+    private EntityMetadata(Class<?> entityClass, AccessorFactory accessorFactory) {
+        if (!entityClass.isAnnotationPresent(Entity.class)) {
+            throw new IllegalArgumentException("Invalid Entity class");
+        }
+
+        this.entityClass = entityClass;
+        this.tableName = entityClass.getAnnotation(Entity.class).name();
+
+        List<ColumnMetadata> columns = new ArrayList<>();
+        List<ColumnMetadata> nonKeyColumns = new ArrayList<>();
+        Map<String, ColumnMetadata> columnsByName = new LinkedHashMap<>();
+        List<AssociationMetadata> associations = new ArrayList<>();
+        ColumnMetadata primaryKey = null;
+        ColumnMetadata version = null;
+
+        for (Field field : entityClass.getDeclaredFields()) {
+            ColumnMetadata column;
+            if (field.isAnnotationPresent(Column.class)) {
+                column = new ColumnMetadata(field, accessorFactory);
+            } else if (field.isAnnotationPresent(ManyToOne.class) || field.isAnnotationPresent(OneToMany.class)) {
+                AssociationMetadata association = new AssociationMetadata(field, accessorFactory);
+                associations.add(association);
+                column = association.getForeignKey();
+                if (column == null) {
+                    continue;
+                }
+            } else {
+                continue;
+            }
+
+            columns.add(column);
+            columnsByName.put(column.getName(), column);
+
+            if (column.isPrimaryKey()) {
+                primaryKey = column;
+            } else {
+                nonKeyColumns.add(column);
+            }
+
+            if (column.isVersion()) {
+                if (version != null || column.isPrimaryKey()) {
+                    throw new IllegalArgumentException("Entity must have at most one @Version column, apart from the primary key");
+                }
+                if (!isVersionType(column.getJavaType())) {
+                    throw new IllegalArgumentException("@Version requires an int, long, Date, Instant or LocalDateTime column");
+                }
+                version = column;
+            }
+        }
+
+        if (primaryKey == null) {
+            throw new UnsupportedOperationException("Entity does not have primary key!");
+        }
+
+        this.columns = Collections.unmodifiableList(columns);
+        this.nonKeyColumns = Collections.unmodifiableList(nonKeyColumns);
+        this.columnsByName = Collections.unmodifiableMap(columnsByName);
+        this.primaryKey = primaryKey;
+        this.version = version;
+        this.associations = Collections.unmodifiableList(associations);
+        this.instantiator = accessorFactory.createInstantiator(findEmptyConstructor(entityClass));
+        this.cacheable = entityClass.getAnnotation(Cacheable.class);
+        this.sequenceGenerator = primaryKey.getField().getAnnotation(SequenceGenerator.class);
+
+        if (this.sequenceGenerator == null) {
+            this.insertColumns = this.nonKeyColumns;
+        } else {
+            if (!ColumnMetadata.isIntegral(primaryKey.getJavaType())) {
+                throw new IllegalArgumentException("@SequenceGenerator requires an int or long primary key");
+            }
+            if (this.sequenceGenerator.allocationSize() <= 0) {
+                throw new IllegalArgumentException("Allocation size must be positive");
+            }
+
+            List<ColumnMetadata> insertColumns = new ArrayList<>(nonKeyColumns);
+            insertColumns.add(primaryKey);
+            this.insertColumns = Collections.unmodifiableList(insertColumns);
+        }
+    }
+
+    static EntityMetadata of(Class<?> entityClass, AccessorFactory accessorFactory) {
+        return new EntityMetadata(entityClass, accessorFactory);
+    }
+
+    public Class<?> getEntityClass() {
+        return this.entityClass;
+    }
+
+    public String getTableName() {
+        return this.tableName;
+    }
+
+    public List<ColumnMetadata> getColumns() {
+        return this.columns;
+    }
+
+    public List<ColumnMetadata> getNonKeyColumns() {
+        return this.nonKeyColumns;
+    }
+
+    public ColumnMetadata getColumn(String columnName) {
+        return this.columnsByName.get(columnName);
+    }
+
+    public ColumnMetadata getPrimaryKey() {
+        return this.primaryKey;
+    }
+
+    //optimistic locking column, null when the entity is not versioned
+    public ColumnMetadata getVersion() {
+        return this.version;
+    }
+
+    public List<AssociationMetadata> getAssociations() {
+        return this.associations;
+    }
+
+    //association by field name, null when there is none
+    public AssociationMetadata getAssociation(String name) {
+        for (AssociationMetadata association : this.associations) {
+            if (association.getName().equals(name)) {
+                return association;
+            }
+        }
+        return null;
+    }
+
+    //second-level cache settings, null when the entity is not cached
+    public Cacheable getCacheable() {
+        return this.cacheable;
+    }
+
+    //null when the database generates the primary key
+    public SequenceGenerator getSequenceGenerator() {
+        return this.sequenceGenerator;
+    }
+
+    //columns written by INSERT, the primary key is included when it is assigned from a sequence
+    public List<ColumnMetadata> getInsertColumns() {
+        return this.insertColumns;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <E> E newInstance() {
+        return (E) this.instantiator.newInstance();
+    }
+
+    private static boolean isVersionType(Class<?> type) {
+        return ColumnMetadata.isIntegral(type) || type == Date.class || type == Instant.class || type == LocalDateTime.class;
+    }
+
+    private static Constructor<?> findEmptyConstructor(Class<?> entityClass) {
+        for (Constructor<?> ctor : entityClass.getDeclaredConstructors()) {
+            if (ctor.getParameterTypes().length == 0) {
+                return ctor;
+            }
+        }
+
+        throw new IllegalArgumentException("Entity must have public default constructor");
+    }
+}
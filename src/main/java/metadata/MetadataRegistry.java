@@ -0,0 +1,29 @@
+package metadata;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+public final class MetadataRegistry {
+
+    private static final ConcurrentMap<Class<?>, EntityMetadata> METADATA = new ConcurrentHashMap<>();
+
+    private static volatile AccessorFactory accessorFactory = new MethodHandleAccessorFactory();
+
+    private MetadataRegistry() {
+    }
+
+    public static EntityMetadata get(Class<?> entityClass) {
+        EntityMetadata metadata = METADATA.get(entityClass);
+        if (metadata == null) {
+            metadata = METADATA.computeIfAbsent(entityClass, c -> EntityMetadata.of(c, accessorFactory));
+        }
+
+        return metadata;
+    }
+
+    //discards the metadata built so far, call it once at startup
+    public static void setAccessorFactory(AccessorFactory factory) {
+        accessorFactory = factory;
+        METADATA.clear();
+    }
+}
@@ -0,0 +1,147 @@
+package metadata;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+
+//handles are erased to Object signatures, so invokeExact skips the per-call access checks of reflection
+public class MethodHandleAccessorFactory implements AccessorFactory {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType INT_SETTER_TYPE = MethodType.methodType(void.class, Object.class, int.class);
+    private static final MethodType LONG_SETTER_TYPE = MethodType.methodType(void.class, Object.class, long.class);
+    private static final MethodType DOUBLE_SETTER_TYPE = MethodType.methodType(void.class, Object.class, double.class);
+    private static final MethodType BOOLEAN_SETTER_TYPE = MethodType.methodType(void.class, Object.class, boolean.class);
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+    private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    @Override
+    public PropertyAccessor createAccessor(Field field) {
+        field.setAccessible(true);
+
+        MethodHandle getter;
+        MethodHandle setter;
+        MethodHandle fieldSetter;
+        try {
+            getter = this.lookup.unreflectGetter(field).asType(GETTER_TYPE);
+            fieldSetter = this.lookup.unreflectSetter(field);
+            setter = fieldSetter.asType(SETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot access field " + field.getName(), e);
+        }
+
+        //primitive fields additionally get a setter taking the unboxed value
+        Class<?> type = field.getType();
+        MethodHandle intSetter = type == int.class ? fieldSetter.asType(INT_SETTER_TYPE) : null;
+        MethodHandle longSetter = type == long.class ? fieldSetter.asType(LONG_SETTER_TYPE) : null;
+        MethodHandle doubleSetter = type == double.class ? fieldSetter.asType(DOUBLE_SETTER_TYPE) : null;
+        MethodHandle booleanSetter = type == boolean.class ? fieldSetter.asType(BOOLEAN_SETTER_TYPE) : null;
+
+        return new PropertyAccessor() {
+            @Override
+            public Object get(Object entity) {
+                try {
+                    return (Object) getter.invokeExact(entity);
+                } catch (Throwable t) {
+                    throw rethrow(t);
+                }
+            }
+
+            @Override
+            public void set(Object entity, Object value) {
+                try {
+                    setter.invokeExact(entity, value);
+                } catch (Throwable t) {
+                    throw rethrow(t);
+                }
+            }
+
+            @Override
+            public void setInt(Object entity, int value) {
+                if (intSetter == null) {
+                    this.set(entity, value);
+                    return;
+                }
+                try {
+                    intSetter.invokeExact(entity, value);
+                } catch (Throwable t) {
+                    throw rethrow(t);
+                }
+            }
+
+            @Override
+            public void setLong(Object entity, long value) {
+                if (longSetter == null) {
+                    this.set(entity, value);
+                    return;
+                }
+                try {
+                    longSetter.invokeExact(entity, value);
+                } catch (Throwable t) {
+                    throw rethrow(t);
+                }
+            }
+
+            @Override
+            public void setDouble(Object entity, double value) {
+                if (doubleSetter == null) {
+                    this.set(entity, value);
+                    return;
+                }
+                try {
+                    doubleSetter.invokeExact(entity, value);
+                } catch (Throwable t) {
+                    throw rethrow(t);
+                }
+            }
+
+            @Override
+            public void setBoolean(Object entity, boolean value) {
+                if (booleanSetter == null) {
+                    this.set(entity, value);
+                    return;
+                }
+                try {
+                    booleanSetter.invokeExact(entity, value);
+                } catch (Throwable t) {
+                    throw rethrow(t);
+                }
+            }
+        };
+    }
+
+    @Override
+    public EntityInstantiator createInstantiator(Constructor<?> constructor) {
+        constructor.setAccessible(true);
+
+        MethodHandle handle;
+        try {
+            handle = this.lookup.unreflectConstructor(constructor).asType(CONSTRUCTOR_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot access constructor of " + constructor.getDeclaringClass().getName(), e);
+        }
+
+        return () -> {
+            try {
+                return (Object) handle.invokeExact();
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        };
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+
+        return new IllegalStateException(t);
+    }
+}
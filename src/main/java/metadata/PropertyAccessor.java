@@ -0,0 +1,26 @@
+package metadata;
+
+public interface PropertyAccessor {
+
+    Object get(Object entity);
+
+    void set(Object entity, Object value);
+
+    //setters of primitive fields, accessors override them to write the value without boxing
+
+    default void setInt(Object entity, int value) {
+        this.set(entity, value);
+    }
+
+    default void setLong(Object entity, long value) {
+        this.set(entity, value);
+    }
+
+    default void setDouble(Object entity, double value) {
+        this.set(entity, value);
+    }
+
+    default void setBoolean(Object entity, boolean value) {
+        this.set(entity, value);
+    }
+}
@@ -0,0 +1,82 @@
+package metadata;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+
+public class ReflectionAccessorFactory implements AccessorFactory {
+
+    @Override
+    public PropertyAccessor createAccessor(Field field) {
+        field.setAccessible(true);
+
+        return new PropertyAccessor() {
+            @Override
+            public Object get(Object entity) {
+                try {
+                    return field.get(entity);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Cannot read field " + field.getName(), e);
+                }
+            }
+
+            @Override
+            public void set(Object entity, Object value) {
+                try {
+                    field.set(entity, value);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Cannot write field " + field.getName(), e);
+                }
+            }
+
+            @Override
+            public void setInt(Object entity, int value) {
+                try {
+                    field.setInt(entity, value);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Cannot write field " + field.getName(), e);
+                }
+            }
+
+            @Override
+            public void setLong(Object entity, long value) {
+                try {
+                    field.setLong(entity, value);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Cannot write field " + field.getName(), e);
+                }
+            }
+
+            @Override
+            public void setDouble(Object entity, double value) {
+                try {
+                    field.setDouble(entity, value);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Cannot write field " + field.getName(), e);
+                }
+            }
+
+            @Override
+            public void setBoolean(Object entity, boolean value) {
+                try {
+                    field.setBoolean(entity, value);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Cannot write field " + field.getName(), e);
+                }
+            }
+        };
+    }
+
+    @Override
+    public EntityInstantiator createInstantiator(Constructor<?> constructor) {
+        constructor.setAccessible(true);
+
+        return () -> {
+            try {
+                return constructor.newInstance();
+            } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("Cannot instantiate " + constructor.getDeclaringClass().getName(), e);
+            }
+        };
+    }
+}
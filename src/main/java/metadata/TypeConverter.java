@@ -0,0 +1,28 @@
+package metadata;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public interface TypeConverter {
+
+    String getSqlType();
+
+    Object read(ResultSet rs, int index) throws SQLException;
+
+    void bind(PreparedStatement stmt, int index, Object value) throws SQLException;
+
+    //sets the column value on the entity, converters of primitive types override this to avoid boxing
+    default void readInto(ResultSet rs, int index, Object entity, PropertyAccessor accessor) throws SQLException {
+        accessor.set(entity, this.read(rs, index));
+    }
+
+    //text form of a value, e.g. in page tokens, parse() must read it back
+    default String format(Object value) {
+        return String.valueOf(value);
+    }
+
+    default Object parse(String text) {
+        throw new UnsupportedOperationException("Values of this type cannot be parsed from text");
+    }
+}
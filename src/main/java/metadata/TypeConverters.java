@@ -0,0 +1,433 @@
+package metadata;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+//enums are stored by name
+public final class TypeConverters {
+
+    private static final ConcurrentMap<Class<?>, TypeConverter> CONVERTERS = new ConcurrentHashMap<>();
+
+    static {
+        CONVERTERS.put(int.class, new PrimitiveConverter("INT", Types.INTEGER) {
+            @Override
+            public Object read(ResultSet rs, int index) throws SQLException {
+                return rs.getInt(index);
+            }
+
+            @Override
+            public void readInto(ResultSet rs, int index, Object entity, PropertyAccessor accessor) throws SQLException {
+                accessor.setInt(entity, rs.getInt(index));
+            }
+
+            @Override
+            void bindValue(PreparedStatement stmt, int index, Object value) throws SQLException {
+                stmt.setInt(index, ((Number) value).intValue());
+            }
+
+            @Override
+            public Object parse(String text) {
+                return Integer.valueOf(text);
+            }
+        });
+        CONVERTERS.put(Integer.class, new Converter("INT", Types.INTEGER) {
+            @Override
+            Object readValue(ResultSet rs, int index) throws SQLException {
+                return rs.getInt(index);
+            }
+
+            @Override
+            void bindValue(PreparedStatement stmt, int index, Object value) throws SQLException {
+                stmt.setInt(index, ((Number) value).intValue());
+            }
+
+            @Override
+            public Object parse(String text) {
+                return Integer.valueOf(text);
+            }
+        });
+
+        CONVERTERS.put(long.class, new PrimitiveConverter("BIGINT", Types.BIGINT) {
+            @Override
+            public Object read(ResultSet rs, int index) throws SQLException {
+                return rs.getLong(index);
+            }
+
+            @Override
+            public void readInto(ResultSet rs, int index, Object entity, PropertyAccessor accessor) throws SQLException {
+                accessor.setLong(entity, rs.getLong(index));
+            }
+
+            @Override
+            void bindValue(PreparedStatement stmt, int index, Object value) throws SQLException {
+                stmt.setLong(index, ((Number) value).longValue());
+            }
+
+            @Override
+            public Object parse(String text) {
+                return Long.valueOf(text);
+            }
+        });
+        CONVERTERS.put(Long.class, new Converter("BIGINT", Types.BIGINT) {
+            @Override
+            Object readValue(ResultSet rs, int index) throws SQLException {
+                return rs.getLong(index);
+            }
+
+            @Override
+            void bindValue(PreparedStatement stmt, int index, Object value) throws SQLException {
+                stmt.setLong(index, ((Number) value).longValue());
+            }
+
+            @Override
+            public Object parse(String text) {
+                return Long.valueOf(text);
+            }
+        });
+
+        CONVERTERS.put(double.class, new PrimitiveConverter("DOUBLE", Types.DOUBLE) {
+            @Override
+            public Object read(ResultSet rs, int index) throws SQLException {
+                return rs.getDouble(index);
+            }
+
+            @Override
+            public void readInto(ResultSet rs, int index, Object entity, PropertyAccessor accessor) throws SQLException {
+                accessor.setDouble(entity, rs.getDouble(index));
+            }
+
+            @Override
+            void bindValue(PreparedStatement stmt, int index, Object value) throws SQLException {
+                stmt.setDouble(index, ((Number) value).doubleValue());
+            }
+
+            @Override
+            public Object parse(String text) {
+                return Double.valueOf(text);
+            }
+        });
+        CONVERTERS.put(Double.class, new Converter("DOUBLE", Types.DOUBLE) {
+            @Override
+            Object readValue(ResultSet rs, int index) throws SQLException {
+                return rs.getDouble(index);
+            }
+
+            @Override
+            void bindValue(PreparedStatement stmt, int index, Object value) throws SQLException {
+                stmt.setDouble(index, ((Number) value).doubleValue());
+            }
+
+            @Override
+            public Object parse(String text) {
+                return Double.valueOf(text);
+            }
+        });
+
+        CONVERTERS.put(boolean.class, new PrimitiveConverter("BOOLEAN", Types.BOOLEAN) {
+            @Override
+            public Object read(ResultSet rs, int index) throws SQLException {
+                return rs.getBoolean(index);
+            }
+
+            @Override
+            public void readInto(ResultSet rs, int index, Object entity, PropertyAccessor accessor) throws SQLException {
+                accessor.setBoolean(entity, rs.getBoolean(index));
+            }
+
+            @Override
+            void bindValue(PreparedStatement stmt, int index, Object value) throws SQLException {
+                stmt.setBoolean(index, (Boolean) value);
+            }
+
+            @Override
+            public Object parse(String text) {
+                return Boolean.valueOf(text);
+            }
+        });
+        CONVERTERS.put(Boolean.class, new Converter("BOOLEAN", Types.BOOLEAN) {
+            @Override
+            Object readValue(ResultSet rs, int index) throws SQLException {
+                return rs.getBoolean(index);
+            }
+
+            @Override
+            void bindValue(PreparedStatement stmt, int index, Object value) throws SQLException {
+                stmt.setBoolean(index, (Boolean) value);
+            }
+
+            @Override
+            public Object parse(String text) {
+                return Boolean.valueOf(text);
+            }
+        });
+
+        CONVERTERS.put(String.class, new Converter("VARCHAR(50)", Types.VARCHAR) {
+            @Override
+            Object readValue(ResultSet rs, int index) throws SQLException {
+                return rs.getString(index);
+            }
+
+            @Override
+            void bindValue(PreparedStatement stmt, int index, Object value) throws SQLException {
+                stmt.setString(index, (String) value);
+            }
+
+            @Override
+            public Object parse(String text) {
+                return text;
+            }
+        });
+
+        CONVERTERS.put(BigDecimal.class, new Converter("DECIMAL(19,4)", Types.DECIMAL) {
+            @Override
+            Object readValue(ResultSet rs, int index) throws SQLException {
+                return rs.getBigDecimal(index);
+            }
+
+            @Override
+            void bindValue(PreparedStatement stmt, int index, Object value) throws SQLException {
+                stmt.setBigDecimal(index, (BigDecimal) value);
+            }
+
+            @Override
+            public Object parse(String text) {
+                return new BigDecimal(text);
+            }
+        });
+
+        CONVERTERS.put(byte[].class, new Converter("BLOB", Types.BLOB) {
+            @Override
+            Object readValue(ResultSet rs, int index) throws SQLException {
+                return rs.getBytes(index);
+            }
+
+            @Override
+            void bindValue(PreparedStatement stmt, int index, Object value) throws SQLException {
+                stmt.setBytes(index, (byte[]) value);
+            }
+
+            @Override
+            public String format(Object value) {
+                return Base64.getEncoder().encodeToString((byte[]) value);
+            }
+
+            @Override
+            public Object parse(String text) {
+                return Base64.getDecoder().decode(text);
+            }
+        });
+
+        //read as Timestamp, which is a Date that keeps the time of day
+        CONVERTERS.put(Date.class, new Converter("DATETIME", Types.TIMESTAMP) {
+            @Override
+            Object readValue(ResultSet rs, int index) throws SQLException {
+                return rs.getTimestamp(index);
+            }
+
+            @Override
+            void bindValue(PreparedStatement stmt, int index, Object value) throws SQLException {
+                stmt.setTimestamp(index, value instanceof Timestamp ? (Timestamp) value : new Timestamp(((Date) value).getTime()));
+            }
+
+            @Override
+            public String format(Object value) {
+                return String.valueOf(((Date) value).getTime());
+            }
+
+            @Override
+            public Object parse(String text) {
+                return new Date(Long.parseLong(text));
+            }
+        });
+
+        //read and bound through the JDBC 4.0 types, older drivers have no getObject(int, Class) or java.time support
+        CONVERTERS.put(LocalDate.class, new Converter("DATE", Types.DATE) {
+            @Override
+            Object readValue(ResultSet rs, int index) throws SQLException {
+                java.sql.Date date = rs.getDate(index);
+                return date == null ? null : date.toLocalDate();
+            }
+
+            @Override
+            void bindValue(PreparedStatement stmt, int index, Object value) throws SQLException {
+                stmt.setDate(index, java.sql.Date.valueOf((LocalDate) value));
+            }
+
+            @Override
+            public Object parse(String text) {
+                return LocalDate.parse(text);
+            }
+        });
+
+        CONVERTERS.put(LocalDateTime.class, new Converter("DATETIME", Types.TIMESTAMP) {
+            @Override
+            Object readValue(ResultSet rs, int index) throws SQLException {
+                Timestamp timestamp = rs.getTimestamp(index);
+                return timestamp == null ? null : timestamp.toLocalDateTime();
+            }
+
+            @Override
+            void bindValue(PreparedStatement stmt, int index, Object value) throws SQLException {
+                stmt.setTimestamp(index, Timestamp.valueOf((LocalDateTime) value));
+            }
+
+            @Override
+            public Object parse(String text) {
+                return LocalDateTime.parse(text);
+            }
+        });
+
+        //JDBC has no standard mapping for Instant, it travels as a Timestamp
+        CONVERTERS.put(Instant.class, new Converter("DATETIME", Types.TIMESTAMP) {
+            @Override
+            Object readValue(ResultSet rs, int index) throws SQLException {
+                Timestamp timestamp = rs.getTimestamp(index);
+                return timestamp == null ? null : timestamp.toInstant();
+            }
+
+            @Override
+            void bindValue(PreparedStatement stmt, int index, Object value) throws SQLException {
+                stmt.setTimestamp(index, Timestamp.from((Instant) value));
+            }
+
+            @Override
+            public Object parse(String text) {
+                return Instant.parse(text);
+            }
+        });
+
+        CONVERTERS.put(UUID.class, new Converter("CHAR(36)", Types.CHAR) {
+            @Override
+            Object readValue(ResultSet rs, int index) throws SQLException {
+                String value = rs.getString(index);
+                return value == null ? null : UUID.fromString(value);
+            }
+
+            @Override
+            void bindValue(PreparedStatement stmt, int index, Object value) throws SQLException {
+                stmt.setString(index, value.toString());
+            }
+
+            @Override
+            public Object parse(String text) {
+                return UUID.fromString(text);
+            }
+        });
+    }
+
+    private TypeConverters() {
+    }
+
+    public static TypeConverter forType(Class<?> javaType) {
+        TypeConverter converter = CONVERTERS.get(javaType);
+        if (converter != null) {
+            return converter;
+        }
+
+        if (javaType.isEnum()) {
+            return CONVERTERS.computeIfAbsent(javaType, TypeConverters::enumConverter);
+        }
+
+        throw new UnsupportedOperationException("Not supported Java type: " + javaType.getName());
+    }
+
+    //metadata keeps the converters it resolved, call it once at startup
+    public static void register(Class<?> javaType, TypeConverter converter) {
+        CONVERTERS.put(javaType, converter);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static TypeConverter enumConverter(Class<?> enumType) {
+        Class<? extends Enum> type = (Class<? extends Enum>) enumType;
+
+        return new Converter("VARCHAR(50)", Types.VARCHAR) {
+            @Override
+            Object readValue(ResultSet rs, int index) throws SQLException {
+                String name = rs.getString(index);
+                return name == null ? null : Enum.valueOf(type, name);
+            }
+
+            @Override
+            void bindValue(PreparedStatement stmt, int index, Object value) throws SQLException {
+                stmt.setString(index, ((Enum<?>) value).name());
+            }
+
+            @Override
+            public String format(Object value) {
+                return ((Enum<?>) value).name();
+            }
+
+            @Override
+            public Object parse(String text) {
+                return Enum.valueOf(type, text);
+            }
+        };
+    }
+
+    //binds null as SQL NULL of the column type
+    private abstract static class BaseConverter implements TypeConverter {
+
+        private final String sqlType;
+        private final int jdbcType;
+
+        BaseConverter(String sqlType, int jdbcType) {
+            this.sqlType = sqlType;
+            this.jdbcType = jdbcType;
+        }
+
+        @Override
+        public String getSqlType() {
+            return this.sqlType;
+        }
+
+        @Override
+        public void bind(PreparedStatement stmt, int index, Object value) throws SQLException {
+            if (value == null) {
+                stmt.setNull(index, this.jdbcType);
+            } else {
+                this.bindValue(stmt, index, value);
+            }
+        }
+
+        abstract void bindValue(PreparedStatement stmt, int index, Object value) throws SQLException;
+    }
+
+    //reads SQL NULL as null
+    private abstract static class Converter extends BaseConverter {
+
+        Converter(String sqlType, int jdbcType) {
+            super(sqlType, jdbcType);
+        }
+
+        @Override
+        public Object read(ResultSet rs, int index) throws SQLException {
+            Object value = this.readValue(rs, index);
+            return rs.wasNull() ? null : value;
+        }
+
+        abstract Object readValue(ResultSet rs, int index) throws SQLException;
+    }
+
+    //primitive fields cannot hold null, SQL NULL is read as the default value of the type
+    private abstract static class PrimitiveConverter extends BaseConverter {
+
+        PrimitiveConverter(String sqlType, int jdbcType) {
+            super(sqlType, jdbcType);
+        }
+
+        @Override
+        public abstract void readInto(ResultSet rs, int index, Object entity, PropertyAccessor accessor) throws SQLException;
+    }
+}
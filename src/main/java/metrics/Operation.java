@@ -0,0 +1,24 @@
+package metrics;
+
+public enum Operation {
+    SELECT,
+    INSERT,
+    UPDATE,
+    DELETE,
+    OTHER;
+
+    public static Operation of(String sql) {
+        int start = 0;
+        while (start < sql.length() && (Character.isWhitespace(sql.charAt(start)) || sql.charAt(start) == '(')) {
+            start++;
+        }
+
+        for (Operation operation : values()) {
+            String keyword = operation.name();
+            if (operation != OTHER && sql.regionMatches(true, start, keyword, 0, keyword.length())) {
+                return operation;
+            }
+        }
+        return OTHER;
+    }
+}
@@ -0,0 +1,116 @@
+package metrics;
+
+import cache.CacheManager;
+import cache.CacheStatistics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class OperationStats implements OperationStatsMXBean {
+
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final String table;
+    private final Operation operation;
+    private final CacheManager cacheManager;
+    private final Histogram latency = new Histogram();
+    private final Histogram batchSizes = new Histogram();
+    private final LongAdder rows = new LongAdder();
+
+    OperationStats(String table, Operation operation, CacheManager cacheManager) {
+        this.table = table;
+        this.operation = operation;
+        this.cacheManager = cacheManager;
+    }
+
+    void record(StatementEvent event) {
+        this.latency.record(event.getElapsedNanos());
+        this.rows.add(event.getRows());
+        if (event.getBatchSize() > 0) {
+            this.batchSizes.record(event.getBatchSize());
+        }
+    }
+
+    //latencies in nanoseconds
+    public Histogram getLatency() {
+        return this.latency;
+    }
+
+    public Histogram getBatchSizes() {
+        return this.batchSizes;
+    }
+
+    @Override
+    public String getTable() {
+        return this.table;
+    }
+
+    @Override
+    public String getOperation() {
+        return this.operation.name();
+    }
+
+    @Override
+    public long getExecutions() {
+        return this.latency.getCount();
+    }
+
+    @Override
+    public long getRows() {
+        return this.rows.sum();
+    }
+
+    @Override
+    public long getBatches() {
+        return this.batchSizes.getCount();
+    }
+
+    @Override
+    public double getMeanBatchSize() {
+        return this.batchSizes.getMean();
+    }
+
+    @Override
+    public long getMaxBatchSize() {
+        return this.batchSizes.getMax();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return this.latency.getMean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return this.latency.getValueAtPercentile(50) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP95Millis() {
+        return this.latency.getValueAtPercentile(95) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return this.latency.getValueAtPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return this.latency.getMax() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getCacheHitRate() {
+        //cache regions are named like the qualified table, see EntityCache
+        CacheStatistics statistics = this.cacheManager.getStatistics(this.table);
+        return statistics == null ? 0 : statistics.getHitRate();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s: executions=%d, rows=%d, batches=%d, p50=%.3f ms, p99=%.3f ms, max=%.3f ms",
+                this.operation, this.table, this.getExecutions(), this.getRows(), this.getBatches(),
+                this.getP50Millis(), this.getP99Millis(), this.getMaxMillis());
+    }
+}
@@ -0,0 +1,31 @@
+package metrics;
+
+public interface OperationStatsMXBean {
+
+    String getTable();
+
+    String getOperation();
+
+    long getExecutions();
+
+    long getRows();
+
+    long getBatches();
+
+    double getMeanBatchSize();
+
+    long getMaxBatchSize();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP95Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+
+    //hit rate of the second-level cache region of the table, 0 when the entity is not cached
+    double getCacheHitRate();
+}
@@ -0,0 +1,201 @@
+package metrics;
+
+import cache.CacheManager;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class QueryMetrics implements StatementListener, QueryMetricsMXBean {
+
+    public static final String JMX_DOMAIN = "miniorm";
+
+    private static final Logger LOGGER = Logger.getLogger(QueryMetrics.class.getName());
+    private static final String UNKNOWN_TABLE = "?";
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final CacheManager cacheManager;
+    private final ConcurrentMap<String, OperationStats> operations;
+    private final Histogram poolWait;
+    private final LongAdder slowQueries;
+    private volatile long slowQueryThresholdNanos;
+    private volatile MBeanServer mBeanServer;
+
+    //reads cache hit rates from the cache shared by all entity managers
+    public QueryMetrics() {
+        this(CacheManager.getShared());
+    }
+
+    public QueryMetrics(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+        this.operations = new ConcurrentHashMap<>();
+        this.poolWait = new Histogram();
+        this.slowQueries = new LongAdder();
+        this.slowQueryThresholdNanos = Long.MAX_VALUE;
+    }
+
+    //statements running at least this long are logged as warnings, 0 logs every statement
+    public QueryMetrics setSlowQueryThreshold(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Slow query threshold must not be negative");
+        }
+        this.slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+        return this;
+    }
+
+    @Override
+    public void onStatement(StatementEvent event) {
+        String table = event.getTable() == null ? UNKNOWN_TABLE : event.getTable();
+        this.getStats(table, event.getOperation()).record(event);
+
+        if (event.getElapsedNanos() >= this.slowQueryThresholdNanos) {
+            this.slowQueries.increment();
+            if (LOGGER.isLoggable(Level.WARNING)) {
+                LOGGER.warning(String.format("Slow %s on %s took %.3f ms (%d rows): %s binds %s",
+                        event.getOperation(), table, event.getElapsedNanos() / NANOS_PER_MILLI, event.getRows(),
+                        event.getSql(), event.getMaskedBinds()));
+            }
+        }
+    }
+
+    @Override
+    public void onConnectionAcquired(long waitNanos) {
+        this.poolWait.record(waitNanos);
+    }
+
+    public OperationStats getStats(String table, Operation operation) {
+        String key = table + " " + operation;
+        OperationStats stats = this.operations.get(key);
+        if (stats == null) {
+            stats = this.operations.computeIfAbsent(key, k -> {
+                OperationStats created = new OperationStats(table, operation, this.cacheManager);
+                this.register(created);
+                return created;
+            });
+        }
+        return stats;
+    }
+
+    public Collection<OperationStats> getOperations() {
+        return Collections.unmodifiableCollection(this.operations.values());
+    }
+
+    //connection wait times in nanoseconds
+    public Histogram getPoolWait() {
+        return this.poolWait;
+    }
+
+    @Override
+    public long getConnectionAcquisitions() {
+        return this.poolWait.getCount();
+    }
+
+    @Override
+    public double getPoolWaitMeanMillis() {
+        return this.poolWait.getMean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getPoolWaitP99Millis() {
+        return this.poolWait.getValueAtPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getPoolWaitMaxMillis() {
+        return this.poolWait.getMax() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public long getSlowQueries() {
+        return this.slowQueries.sum();
+    }
+
+    @Override
+    public long getSlowQueryThresholdMillis() {
+        long nanos = this.slowQueryThresholdNanos;
+        return nanos == Long.MAX_VALUE ? -1 : TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    @Override
+    public void setSlowQueryThresholdMillis(long millis) {
+        if (millis < 0) {
+            this.slowQueryThresholdNanos = Long.MAX_VALUE;
+        } else {
+            this.setSlowQueryThreshold(millis);
+        }
+    }
+
+    /*
+    Registers this object and every operation seen so far with the platform MBean server.
+    Operations first executed later are registered as they appear.
+    */
+    public synchronized void registerMBeans() throws JMException {
+        if (this.mBeanServer != null) {
+            return;
+        }
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, this.objectName());
+        this.mBeanServer = server;
+
+        for (OperationStats stats : this.operations.values()) {
+            this.register(stats);
+        }
+    }
+
+    public synchronized void unregisterMBeans() throws JMException {
+        MBeanServer server = this.mBeanServer;
+        if (server == null) {
+            return;
+        }
+        this.mBeanServer = null;
+
+        List<ObjectName> names = new ArrayList<>();
+        names.add(this.objectName());
+        for (OperationStats stats : this.operations.values()) {
+            names.add(this.objectName(stats));
+        }
+
+        for (ObjectName name : names) {
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        }
+    }
+
+    private void register(OperationStats stats) {
+        MBeanServer server = this.mBeanServer;
+        if (server == null) {
+            return;
+        }
+
+        try {
+            ObjectName name = this.objectName(stats);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(stats, name);
+            }
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, "Cannot register statistics of " + stats.getTable(), e);
+        }
+    }
+
+    private ObjectName objectName() throws JMException {
+        return new ObjectName(JMX_DOMAIN + ":type=QueryMetrics,id=" + System.identityHashCode(this));
+    }
+
+    private ObjectName objectName(OperationStats stats) throws JMException {
+        return new ObjectName(JMX_DOMAIN + ":type=Statements,id=" + System.identityHashCode(this)
+                + ",table=" + ObjectName.quote(stats.getTable()) + ",operation=" + stats.getOperation());
+    }
+}
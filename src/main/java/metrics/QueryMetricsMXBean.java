@@ -0,0 +1,18 @@
+package metrics;
+
+public interface QueryMetricsMXBean {
+
+    long getConnectionAcquisitions();
+
+    double getPoolWaitMeanMillis();
+
+    double getPoolWaitP99Millis();
+
+    double getPoolWaitMaxMillis();
+
+    long getSlowQueries();
+
+    long getSlowQueryThresholdMillis();
+
+    void setSlowQueryThresholdMillis(long millis);
+}
@@ -0,0 +1,72 @@
+package metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+//rows are those read for queries and the update counts for writes
+public final class StatementEvent {
+
+    private static final String NULL = "NULL";
+
+    private final String table;
+    private final Operation operation;
+    private final String sql;
+    private final long elapsedNanos;
+    private final long rows;
+    private final int batchSize;
+    private final Object[] binds;
+
+    public StatementEvent(String table, Operation operation, String sql, long elapsedNanos, long rows, int batchSize, Object[] binds) {
+        this.table = table;
+        this.operation = operation;
+        this.sql = sql;
+        this.elapsedNanos = elapsedNanos;
+        this.rows = rows;
+        this.batchSize = batchSize;
+        this.binds = binds;
+    }
+
+    //table the statement reads or writes, null when it could not be determined
+    public String getTable() {
+        return this.table;
+    }
+
+    public Operation getOperation() {
+        return this.operation;
+    }
+
+    public String getSql() {
+        return this.sql;
+    }
+
+    public long getElapsedNanos() {
+        return this.elapsedNanos;
+    }
+
+    public long getRows() {
+        return this.rows;
+    }
+
+    //0 unless the statement was executed as a batch
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    //bind values of the execution, of the last parameter set for batches
+    public List<Object> getBinds() {
+        return this.binds == null ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(this.binds));
+    }
+
+    //bind values reduced to their types, safe to log
+    public List<String> getMaskedBinds() {
+        List<String> masked = new ArrayList<>();
+        if (this.binds != null) {
+            for (Object bind : this.binds) {
+                masked.add(bind == null ? NULL : "<" + bind.getClass().getSimpleName() + ">");
+            }
+        }
+        return masked;
+    }
+}
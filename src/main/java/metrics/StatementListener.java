@@ -0,0 +1,11 @@
+package metrics;
+
+//called on the executing thread, implementations must be thread-safe
+public interface StatementListener {
+
+    void onStatement(StatementEvent event);
+
+    //time a caller waited for a pooled connection
+    default void onConnectionAcquired(long waitNanos) {
+    }
+}
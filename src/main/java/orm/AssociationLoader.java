@@ -0,0 +1,110 @@
+package orm;
+
+import associations.FetchBatch;
+import associations.LazyList;
+import associations.Reference;
+import metadata.AssociationMetadata;
+import metadata.ColumnMetadata;
+import metadata.EntityMetadata;
+import metadata.MetadataRegistry;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+final class AssociationLoader {
+
+    private final EntityManager entityManager;
+    private final int batchSize;
+
+    AssociationLoader(EntityManager entityManager, int batchSize) {
+        this.entityManager = entityManager;
+        this.batchSize = batchSize;
+    }
+
+    <E> void attach(EntityMetadata metadata, List<E> entities) {
+        if (metadata.getAssociations().isEmpty() || entities.isEmpty()) {
+            return;
+        }
+
+        for (AssociationMetadata association : metadata.getAssociations()) {
+            if (association.isCollection()) {
+                this.attachCollections(metadata, association, entities);
+            } else {
+                this.attachReferences(association, entities);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void attachReferences(AssociationMetadata association, List<?> entities) {
+        FetchBatch<Object> batch = null;
+        for (Object entity : entities) {
+            Reference<Object> reference = (Reference<Object>) association.getValue(entity);
+            if (reference == null || reference.isLoaded()) {
+                continue;
+            }
+
+            if (batch == null) {
+                batch = new FetchBatch<>(ids -> this.loadReferences(association.getTargetClass(), ids));
+            }
+            reference.attach(batch);
+        }
+    }
+
+    private void attachCollections(EntityMetadata metadata, AssociationMetadata association, List<?> entities) {
+        FetchBatch<List<Object>> batch = new FetchBatch<>(owners -> this.loadCollections(association, owners));
+        ColumnMetadata primaryKey = metadata.getPrimaryKey();
+
+        for (Object entity : entities) {
+            Object id = primaryKey.getValue(entity);
+            if (!EntityManager.isTransient(id)) {
+                association.setValue(entity, new LazyList<>(batch, id));
+            }
+        }
+    }
+
+    private Map<Object, Object> loadReferences(Class<?> targetClass, List<Object> ids) {
+        ColumnMetadata primaryKey = MetadataRegistry.get(targetClass).getPrimaryKey();
+        Map<Object, Object> found = new HashMap<>();
+
+        try {
+            for (Object target : this.entityManager.findAllById(targetClass, ids)) {
+                found.put(primaryKey.getValue(target), target);
+            }
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+
+        return found;
+    }
+
+    private Map<Object, List<Object>> loadCollections(AssociationMetadata association, List<Object> owners) {
+        EntityMetadata target = MetadataRegistry.get(association.getTargetClass());
+        ColumnMetadata foreignKey = target.getColumn(association.getColumnName());
+        if (foreignKey == null) {
+            throw new IllegalArgumentException(String.format("%s has no column %s",
+                    target.getEntityClass().getSimpleName(), association.getColumnName()));
+        }
+
+        Map<Object, List<Object>> found = new HashMap<>();
+        try {
+            for (int from = 0; from < owners.size(); from += this.batchSize) {
+                List<Object> chunk = owners.subList(from, Math.min(from + this.batchSize, owners.size()));
+
+                List<?> children = this.entityManager.query(association.getTargetClass())
+                        .where(foreignKey.getName()).in(chunk)
+                        .list();
+                for (Object child : children) {
+                    found.computeIfAbsent(foreignKey.getValue(child), k -> new ArrayList<>()).add(child);
+                }
+            }
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+
+        return found;
+    }
+}
@@ -0,0 +1,41 @@
+package orm;
+
+import query.Assignments;
+import query.Criteria;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public interface AsyncDBContext extends AutoCloseable {
+
+    <E> CompletableFuture<Boolean> persist(E entity);
+
+    <E> CompletableFuture<Void> persistAll(Iterable<E> entities);
+
+    <E> CompletableFuture<Void> upsert(E entity);
+
+    <E> CompletableFuture<Void> upsertAll(Iterable<E> entities);
+
+    <E> CompletableFuture<Void> doDelete(E entity);
+
+    <E> CompletableFuture<Long> deleteWhere(Class<E> table, Criteria criteria);
+
+    <E> CompletableFuture<Long> updateWhere(Class<E> table, Assignments assignments, Criteria criteria);
+
+    <E> CompletableFuture<List<E>> find(Class<E> table);
+
+    <E> CompletableFuture<List<E>> find(Class<E> table, String where);
+
+    <E> CompletableFuture<E> findFirst(Class<E> table);
+
+    <E> CompletableFuture<E> findFirst(Class<E> table, String where);
+
+    <E> CompletableFuture<E> findById(Class<E> table, Object id);
+
+    <E> CompletableFuture<List<E>> findAllById(Class<E> table, Collection<?> ids);
+
+    //waits for the running tasks and closes the underlying context
+    @Override
+    void close();
+}
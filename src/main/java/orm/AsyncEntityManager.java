@@ -0,0 +1,154 @@
+package orm;
+
+import query.Assignments;
+import query.Criteria;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+
+//the semaphore caps the statements in flight, so the database sees no more queries than the pool can serve
+class AsyncEntityManager implements AsyncDBContext {
+
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    private final EntityManager entityManager;
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+
+    AsyncEntityManager(EntityManager entityManager, int maxInFlight) {
+        this.entityManager = entityManager;
+        this.executor = createExecutor(maxInFlight);
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    @Override
+    public <E> CompletableFuture<Boolean> persist(E entity) {
+        return this.submit(() -> this.entityManager.persist(entity));
+    }
+
+    @Override
+    public <E> CompletableFuture<Void> persistAll(Iterable<E> entities) {
+        return this.submit(() -> {
+            this.entityManager.persistAll(entities);
+            return null;
+        });
+    }
+
+    @Override
+    public <E> CompletableFuture<Void> upsert(E entity) {
+        return this.submit(() -> {
+            this.entityManager.upsert(entity);
+            return null;
+        });
+    }
+
+    @Override
+    public <E> CompletableFuture<Void> upsertAll(Iterable<E> entities) {
+        return this.submit(() -> {
+            this.entityManager.upsertAll(entities);
+            return null;
+        });
+    }
+
+    @Override
+    public <E> CompletableFuture<Void> doDelete(E entity) {
+        return this.submit(() -> {
+            this.entityManager.doDelete(entity);
+            return null;
+        });
+    }
+
+    @Override
+    public <E> CompletableFuture<Long> deleteWhere(Class<E> table, Criteria criteria) {
+        return this.submit(() -> this.entityManager.deleteWhere(table, criteria));
+    }
+
+    @Override
+    public <E> CompletableFuture<Long> updateWhere(Class<E> table, Assignments assignments, Criteria criteria) {
+        return this.submit(() -> this.entityManager.updateWhere(table, assignments, criteria));
+    }
+
+    @Override
+    public <E> CompletableFuture<List<E>> find(Class<E> table) {
+        return this.find(table, "");
+    }
+
+    @Override
+    public <E> CompletableFuture<List<E>> find(Class<E> table, String where) {
+        return this.submit(() -> this.entityManager.findList(table, where));
+    }
+
+    @Override
+    public <E> CompletableFuture<E> findFirst(Class<E> table) {
+        return this.findFirst(table, "");
+    }
+
+    @Override
+    public <E> CompletableFuture<E> findFirst(Class<E> table, String where) {
+        return this.submit(() -> this.entityManager.findFirst(table, where));
+    }
+
+    @Override
+    public <E> CompletableFuture<E> findById(Class<E> table, Object id) {
+        return this.submit(() -> this.entityManager.findById(table, id));
+    }
+
+    @Override
+    public <E> CompletableFuture<List<E>> findAllById(Class<E> table, Collection<?> ids) {
+        return this.submit(() -> this.entityManager.findAllById(table, ids));
+    }
+
+    @Override
+    public void close() {
+        this.executor.shutdown();
+        try {
+            this.executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.entityManager.close();
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        try {
+            this.executor.execute(() -> {
+                try {
+                    this.inFlight.acquire();
+                } catch (InterruptedException e) {
+                    future.completeExceptionally(e);
+                    return;
+                }
+
+                try {
+                    future.complete(task.call());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                } finally {
+                    this.inFlight.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    private static ExecutorService createExecutor(int threads) {
+        try {
+            Method virtualThreadExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtualThreadExecutor.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "miniorm-async");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package orm;
+
+import cache.CacheManager;
+import metrics.StatementListener;
+
+class Configuration {
+
+    private static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    private static final int DEFAULT_MIN_POOL_SIZE = 1;
+    private static final int DEFAULT_MAX_POOL_SIZE = 10;
+    private static final long DEFAULT_ACQUIRE_TIMEOUT_MILLIS = 30_000;
+    private static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 600_000;
+    //makes MySQL Connector/J stream rows one by one instead of buffering the whole result
+    private static final int DEFAULT_STREAM_FETCH_SIZE = Integer.MIN_VALUE;
+
+    private int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private boolean multiRowInserts;
+    private int minPoolSize = DEFAULT_MIN_POOL_SIZE;
+    private int maxPoolSize = DEFAULT_MAX_POOL_SIZE;
+    private long acquireTimeout = DEFAULT_ACQUIRE_TIMEOUT_MILLIS;
+    private long idleTimeout = DEFAULT_IDLE_TIMEOUT_MILLIS;
+    private long leakDetectionThreshold;
+    private boolean validateOnBorrow = true;
+    private int streamFetchSize = DEFAULT_STREAM_FETCH_SIZE;
+    private CacheManager cacheManager = CacheManager.getShared();
+    private int maxInFlightQueries;
+    private Dialect dialect = new MySqlDialect();
+    private volatile StatementListener statementListener;
+
+    int getStatementCacheSize() {
+        return this.statementCacheSize;
+    }
+
+    void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    int getBatchSize() {
+        return this.batchSize;
+    }
+
+    void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    boolean isMultiRowInserts() {
+        return this.multiRowInserts;
+    }
+
+    void setMultiRowInserts(boolean multiRowInserts) {
+        this.multiRowInserts = multiRowInserts;
+    }
+
+    int getMinPoolSize() {
+        return this.minPoolSize;
+    }
+
+    void setMinPoolSize(int minPoolSize) {
+        this.minPoolSize = minPoolSize;
+    }
+
+    int getMaxPoolSize() {
+        return this.maxPoolSize;
+    }
+
+    void setMaxPoolSize(int maxPoolSize) {
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    long getAcquireTimeout() {
+        return this.acquireTimeout;
+    }
+
+    void setAcquireTimeout(long acquireTimeout) {
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    long getIdleTimeout() {
+        return this.idleTimeout;
+    }
+
+    void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    long getLeakDetectionThreshold() {
+        return this.leakDetectionThreshold;
+    }
+
+    void setLeakDetectionThreshold(long leakDetectionThreshold) {
+        this.leakDetectionThreshold = leakDetectionThreshold;
+    }
+
+    boolean isValidateOnBorrow() {
+        return this.validateOnBorrow;
+    }
+
+    void setValidateOnBorrow(boolean validateOnBorrow) {
+        this.validateOnBorrow = validateOnBorrow;
+    }
+
+    int getStreamFetchSize() {
+        return this.streamFetchSize;
+    }
+
+    void setStreamFetchSize(int streamFetchSize) {
+        this.streamFetchSize = streamFetchSize;
+    }
+
+    CacheManager getCacheManager() {
+        return this.cacheManager;
+    }
+
+    void setCacheManager(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    //defaults to the maximum pool size
+    int getMaxInFlightQueries() {
+        return this.maxInFlightQueries > 0 ? this.maxInFlightQueries : this.maxPoolSize;
+    }
+
+    void setMaxInFlightQueries(int maxInFlightQueries) {
+        this.maxInFlightQueries = maxInFlightQueries;
+    }
+
+    Dialect getDialect() {
+        return this.dialect;
+    }
+
+    void setDialect(Dialect dialect) {
+        this.dialect = dialect;
+    }
+
+    //null unless statements are measured
+    StatementListener getStatementListener() {
+        return this.statementListener;
+    }
+
+    void setStatementListener(StatementListener statementListener) {
+        this.statementListener = statementListener;
+    }
+}
@@ -0,0 +1,9 @@
+package orm;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public interface ConnectionFactory {
+
+    Connection create() throws SQLException;
+}
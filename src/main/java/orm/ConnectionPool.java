@@ -0,0 +1,189 @@
+package orm;
+
+import metrics.StatementListener;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class ConnectionPool implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class.getName());
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    //connections returned more recently than this are handed out without a validation round trip
+    private static final long VALIDATION_IDLE_MILLIS = 500;
+    private static final long HOUSEKEEPING_PERIOD_MILLIS = 1000;
+
+    private final ConnectionFactory factory;
+    private final Configuration configuration;
+    private final LinkedBlockingDeque<PooledConnection> idle;
+    private final Set<PooledConnection> borrowed;
+    private final Semaphore permits;
+    private final AtomicInteger size;
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    ConnectionPool(ConnectionFactory factory, Configuration configuration) throws SQLException {
+        if (configuration.getMinPoolSize() > configuration.getMaxPoolSize()) {
+            throw new IllegalArgumentException("Minimum pool size is greater than the maximum pool size");
+        }
+
+        this.factory = factory;
+        this.configuration = configuration;
+        this.idle = new LinkedBlockingDeque<>();
+        this.borrowed = ConcurrentHashMap.newKeySet();
+        this.permits = new Semaphore(configuration.getMaxPoolSize(), true);
+        this.size = new AtomicInteger();
+
+        for (int i = 0; i < configuration.getMinPoolSize(); i++) {
+            this.idle.offerLast(this.open());
+        }
+
+        if (configuration.getIdleTimeout() > 0 || configuration.getLeakDetectionThreshold() > 0) {
+            this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "miniorm-pool-housekeeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.housekeeper.scheduleWithFixedDelay(this::houseKeep,
+                    HOUSEKEEPING_PERIOD_MILLIS, HOUSEKEEPING_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+        } else {
+            this.housekeeper = null;
+        }
+    }
+
+    PooledConnection acquire() throws SQLException {
+        if (this.closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        StatementListener listener = this.configuration.getStatementListener();
+        long start = listener == null ? 0 : System.nanoTime();
+
+        try {
+            if (!this.permits.tryAcquire(this.configuration.getAcquireTimeout(), TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException(String.format("No connection available within %d ms (pool size %d)",
+                        this.configuration.getAcquireTimeout(), this.configuration.getMaxPoolSize()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+
+        try {
+            PooledConnection connection;
+            while ((connection = this.idle.pollFirst()) != null) {
+                if (!this.needsValidation(connection) || connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    break;
+                }
+                this.discard(connection);
+            }
+
+            if (connection == null) {
+                connection = this.open();
+            }
+
+            connection.onBorrow(this.configuration.getLeakDetectionThreshold() > 0);
+            this.borrowed.add(connection);
+            if (listener != null) {
+                listener.onConnectionAcquired(System.nanoTime() - start);
+            }
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            this.permits.release();
+            throw e;
+        }
+    }
+
+    void release(PooledConnection connection) {
+        if (!this.borrowed.remove(connection)) {
+            return;
+        }
+
+        if (this.closed || !connection.reset()) {
+            this.discard(connection);
+        } else {
+            connection.onReturn();
+            this.idle.offerFirst(connection);
+        }
+        this.permits.release();
+    }
+
+    public int getSize() {
+        return this.size.get();
+    }
+
+    public int getIdleCount() {
+        return this.idle.size();
+    }
+
+    public int getActiveCount() {
+        return this.borrowed.size();
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+        if (this.housekeeper != null) {
+            this.housekeeper.shutdownNow();
+        }
+
+        PooledConnection connection;
+        while ((connection = this.idle.pollFirst()) != null) {
+            this.discard(connection);
+        }
+    }
+
+    private boolean needsValidation(PooledConnection connection) {
+        return this.configuration.isValidateOnBorrow()
+                && System.currentTimeMillis() - connection.getLastUsed() > VALIDATION_IDLE_MILLIS;
+    }
+
+    private PooledConnection open() throws SQLException {
+        PooledConnection connection = new PooledConnection(this, this.factory.create(), this.configuration);
+        this.size.incrementAndGet();
+        return connection;
+    }
+
+    private void discard(PooledConnection connection) {
+        this.size.decrementAndGet();
+        connection.closePhysical();
+    }
+
+    private void houseKeep() {
+        long now = System.currentTimeMillis();
+
+        long idleTimeout = this.configuration.getIdleTimeout();
+        if (idleTimeout > 0) {
+            Iterator<PooledConnection> iterator = this.idle.descendingIterator();
+            while (iterator.hasNext() && this.size.get() > this.configuration.getMinPoolSize()) {
+                PooledConnection connection = iterator.next();
+                if (now - connection.getLastUsed() > idleTimeout && this.idle.remove(connection)) {
+                    this.discard(connection);
+                }
+            }
+        }
+
+        long leakThreshold = this.configuration.getLeakDetectionThreshold();
+        if (leakThreshold > 0) {
+            for (PooledConnection connection : this.borrowed) {
+                if (!connection.isLeakReported() && now - connection.getBorrowedAt() > leakThreshold) {
+                    connection.markLeakReported();
+                    LOGGER.log(Level.WARNING, String.format("Connection held for more than %d ms, possible leak",
+                            leakThreshold), connection.getBorrowSite());
+                }
+            }
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package orm;
 
-import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.Properties;
@@ -8,6 +7,7 @@ import java.util.Properties;
 public class Connector {
 
     private static final String CONNECTION_STRING = "%s:%s://%s:%s";
+    private static final String MYSQL_DRIVER = "mysql";
 
     private EntityManagerBuilder builder;
     private String adapter;
@@ -51,19 +51,63 @@ public class Connector {
         return this;
     }
 
+    public Connector setMinPoolSize(int minPoolSize) {
+        if (minPoolSize < 0) {
+            throw new IllegalArgumentException("Minimum pool size must not be negative");
+        }
+        this.builder.getConfiguration().setMinPoolSize(minPoolSize);
+        return this;
+    }
+
+    public Connector setMaxPoolSize(int maxPoolSize) {
+        if (maxPoolSize <= 0) {
+            throw new IllegalArgumentException("Maximum pool size must be positive");
+        }
+        this.builder.getConfiguration().setMaxPoolSize(maxPoolSize);
+        return this;
+    }
+
+    //how long to wait for a free connection before failing with SQLTimeoutException
+    public Connector setAcquireTimeout(long millis) {
+        this.builder.getConfiguration().setAcquireTimeout(millis);
+        return this;
+    }
+
+    //idle connections above the minimum pool size are closed after this time, 0 keeps them open
+    public Connector setIdleTimeout(long millis) {
+        this.builder.getConfiguration().setIdleTimeout(millis);
+        return this;
+    }
+
+    //connections held longer than this are logged with the borrower's stack trace, 0 disables the check
+    public Connector setLeakDetectionThreshold(long millis) {
+        this.builder.getConfiguration().setLeakDetectionThreshold(millis);
+        return this;
+    }
+
+    //checks connections idle for more than 500 ms before handing them out, recently used ones are trusted
+    public Connector setValidateOnBorrow(boolean validateOnBorrow) {
+        this.builder.getConfiguration().setValidateOnBorrow(validateOnBorrow);
+        return this;
+    }
+
     public EntityManagerBuilder createConnection() throws SQLException {
         Properties props = new Properties();
         props.setProperty("user", this.user);
         props.setProperty("password", this.password);
 
-        Connection conn = DriverManager.getConnection(
-                String.format(CONNECTION_STRING,
-                        this.adapter,
-                        this.driver,
-                        this.host,
-                        this.port), props);
+        if (MYSQL_DRIVER.equals(this.driver)) {
+            //let the server keep the parsed plans of the statements cached by the EntityManager
+            props.setProperty("useServerPrepStmts", "true");
+            props.setProperty("cachePrepStmts", "true");
+        }
+
+        String url = String.format(CONNECTION_STRING,
+                this.adapter,
+                this.driver,
+                this.host,
+                this.port);
 
-        this.builder.setConnection(conn);
-        return this.builder;
+        return this.builder.setConnectionFactory(() -> DriverManager.getConnection(url, props));
     }
 }
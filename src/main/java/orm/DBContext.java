@@ -1,19 +1,101 @@
 package orm;
 
+import query.Assignments;
+import query.Criteria;
+import query.Page;
+import query.PageRequest;
+import query.Query;
+
 import java.lang.reflect.InvocationTargetException;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
-public interface DBContext {
+public interface DBContext extends AutoCloseable {
 
     <E> boolean  persist(E entity) throws IllegalAccessException, SQLException, InstantiationException, ClassNotFoundException;
 
+    <E> void persistAll(Iterable<E> entities) throws SQLException;
+
+    /*
+    Inserts the entity or, when a row with its primary key exists, updates that row, in a single statement.
+    Meant for entities with externally assigned keys, not supported for @Version entities
+    */
+    <E> void upsert(E entity) throws SQLException;
+
+    //upserts of each entity class are sent in batches, see EntityManagerBuilder.setDialect for other databases
+    <E> void upsertAll(Iterable<E> entities) throws SQLException;
+
     <E> void doDelete(E table) throws Exception;
 
+    <E> void deleteAll(Iterable<E> entities) throws SQLException;
+
+    /*
+    Deletes the rows matching the criteria in a single statement without loading them, returns the number of
+    deleted rows. Entities already loaded, e.g. into a Session, are not updated
+    */
+    <E> long deleteWhere(Class<E> table, Criteria criteria) throws SQLException;
+
+    //deletes in chunks of chunkSize rows by primary key range, each committed on its own outside a transaction
+    <E> long deleteWhere(Class<E> table, Criteria criteria, int chunkSize) throws SQLException;
+
+    /*
+    Sets the assigned columns of the rows matching the criteria in a single statement, returns the number of
+    updated rows. A @Version column is moved on to a new version unless it is assigned
+    */
+    <E> long updateWhere(Class<E> table, Assignments assignments, Criteria criteria) throws SQLException;
+
+    <E> long updateWhere(Class<E> table, Assignments assignments, Criteria criteria, int chunkSize) throws SQLException;
+
     <E> Iterable<E> find(Class<E> table) throws IllegalAccessException, SQLException, InstantiationException, ClassNotFoundException, NoSuchMethodException, InvocationTargetException;
 
     <E> Iterable<E> find(Class<E> table, String where) throws SQLException, IllegalAccessException, InstantiationException, ClassNotFoundException, NoSuchMethodException, InvocationTargetException;
 
+    //null when no row has the given primary key
+    <E> E findById(Class<E> table, Object id) throws SQLException;
+
+    //entities in the order of the given ids, ids without a row are skipped, a repeated id repeats its entity
+    <E> List<E> findAllById(Class<E> table, Collection<?> ids) throws SQLException;
+
+    /*
+    Rows are read lazily through a forward-only cursor and hydrated one at a time.
+    The stream holds a pooled connection until it is exhausted or closed,
+    so it should be used in a try-with-resources block. Inside a transaction it runs on the transaction's
+    connection and does not stream row by row, so other statements can run while it is open
+    */
+    <E> Stream<E> stream(Class<E> table) throws SQLException;
+
+    <E> Stream<E> stream(Class<E> table, String where) throws SQLException;
+
     <E> E findFirst(Class<E> table) throws NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException, SQLException, ClassNotFoundException;
 
     <E> E findFirst(Class<E> table, String where) throws SQLException, InstantiationException, IllegalAccessException, ClassNotFoundException, NoSuchMethodException, InvocationTargetException;
+
+    //type-safe alternative to the SQL filters of find(), e.g. query(User.class).where("age").ge(18).list()
+    <E> Query<E> query(Class<E> table);
+
+    //keyset page of the entities, continue with page.next() or PageRequest.after(token)
+    <E> Page<E> page(Class<E> table, PageRequest request) throws SQLException;
+
+    /*
+    Begins a transaction bound to the calling thread, nested in the current one through a savepoint if there is one.
+    Writes issued on the thread are queued and executed as batches on flush, commit or before the next read.
+    */
+    Transaction begin() throws SQLException;
+
+    //isolation and read-only apply to top level transactions only
+    Transaction begin(Isolation isolation, boolean readOnly) throws SQLException;
+
+    //runs the work in a transaction, committed when it returns and rolled back when it throws
+    <T> T inTransaction(TransactionCallback<T> work) throws SQLException;
+
+    <T> T inTransaction(Isolation isolation, boolean readOnly, TransactionCallback<T> work) throws SQLException;
+
+    //opens a unit of work with its own identity map, changes are written on Session.flush()
+    Session openSession();
+
+    //closes the connection pool of this context
+    @Override
+    void close();
 }
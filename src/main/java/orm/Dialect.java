@@ -0,0 +1,12 @@
+package orm;
+
+import java.util.List;
+
+public interface Dialect {
+
+    /*
+    INSERT of the given number of rows which updates the updateColumns of the rows whose key already exists.
+    The table name is qualified with the database, every row binds the columns in the given order.
+    */
+    String upsert(String table, List<String> columns, String keyColumn, List<String> updateColumns, int rows);
+}
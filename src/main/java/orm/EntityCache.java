@@ -0,0 +1,146 @@
+package orm;
+
+import annotations.Cacheable;
+import cache.CacheManager;
+import cache.CacheRegion;
+import metadata.ColumnMetadata;
+import metadata.EntityMetadata;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+//rows are cached as column values, so every hit returns a fresh instance
+final class EntityCache {
+
+    static final EntityCache DISABLED = new EntityCache(null, null, null);
+
+    private static final String QUERY_REGION_SUFFIX = "#queries";
+
+    private final EntityMetadata metadata;
+    private final CacheRegion entities;
+    private final CacheRegion queries;
+
+    private EntityCache(EntityMetadata metadata, CacheRegion entities, CacheRegion queries) {
+        this.metadata = metadata;
+        this.entities = entities;
+        this.queries = queries;
+    }
+
+    static EntityCache of(CacheManager cacheManager, String dbName, EntityMetadata metadata) {
+        Cacheable cacheable = metadata.getCacheable();
+        if (cacheable == null) {
+            return DISABLED;
+        }
+
+        String regionName = dbName + "." + metadata.getTableName();
+        CacheRegion entities = cacheManager.getRegion(regionName, cacheable.maxSize(), cacheable.ttlSeconds());
+        CacheRegion queries = cacheable.cacheQueries()
+                ? cacheManager.getRegion(regionName + QUERY_REGION_SUFFIX, cacheable.maxSize(), cacheable.ttlSeconds())
+                : null;
+
+        return new EntityCache(metadata, entities, queries);
+    }
+
+    <E> E get(Object id) {
+        if (this.entities == null) {
+            return null;
+        }
+
+        Object[] values = (Object[]) this.entities.get(id);
+        return values == null ? null : this.assemble(values);
+    }
+
+    void put(Object entity) {
+        if (this.entities != null) {
+            this.entities.put(this.metadata.getPrimaryKey().getValue(entity), this.disassemble(entity));
+        }
+    }
+
+    //null unless every row of the cached result is still cached
+    <E> List<E> getQuery(String sql) {
+        if (this.queries == null) {
+            return null;
+        }
+
+        Object[] ids = (Object[]) this.queries.get(sql);
+        if (ids == null) {
+            return null;
+        }
+
+        List<E> result = new ArrayList<>(ids.length);
+        for (Object id : ids) {
+            E entity = this.get(id);
+            if (entity == null) {
+                return null;
+            }
+            result.add(entity);
+        }
+
+        return result;
+    }
+
+    void putQuery(String sql, List<?> result) {
+        if (this.queries == null) {
+            return;
+        }
+
+        Object[] ids = new Object[result.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = this.metadata.getPrimaryKey().getValue(result.get(i));
+        }
+        this.queries.put(sql, ids);
+    }
+
+    void invalidate(Object entity) {
+        if (this.entities != null) {
+            this.entities.invalidate(this.metadata.getPrimaryKey().getValue(entity));
+        }
+        this.invalidateQueries();
+    }
+
+    //bulk statements change rows that are not known one by one
+    void invalidateAll() {
+        if (this.entities != null) {
+            this.entities.invalidateAll();
+        }
+        this.invalidateQueries();
+    }
+
+    //any insert, update or delete may change the result of a cached query
+    void invalidateQueries() {
+        if (this.queries != null) {
+            this.queries.invalidateAll();
+        }
+    }
+
+    private Object[] disassemble(Object entity) {
+        List<ColumnMetadata> columns = this.metadata.getColumns();
+        Object[] values = new Object[columns.size()];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = copy(columns.get(i).getValue(entity));
+        }
+
+        return values;
+    }
+
+    private <E> E assemble(Object[] values) {
+        E entity = this.metadata.newInstance();
+
+        List<ColumnMetadata> columns = this.metadata.getColumns();
+        for (int i = 0; i < values.length; i++) {
+            columns.get(i).setValue(entity, copy(values[i]));
+        }
+
+        return entity;
+    }
+
+    //defensive copy of the mutable column values, dates and byte arrays
+    static Object copy(Object value) {
+        if (value instanceof Date) {
+            return ((Date) value).clone();
+        }
+        return value instanceof byte[] ? ((byte[]) value).clone() : value;
+    }
+}
@@ -0,0 +1,63 @@
+package orm;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+//releases the result set, statement and connection once exhausted, on failure or on close
+class EntityCursor<E> extends Spliterators.AbstractSpliterator<E> implements AutoCloseable {
+
+    private final PooledConnection connection;
+    private final PreparedStatement stmt;
+    private final ResultSet rs;
+    private final RowMapper<E> mapper;
+    private boolean closed;
+
+    EntityCursor(PooledConnection connection, PreparedStatement stmt, ResultSet rs, RowMapper<E> mapper) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+        this.connection = connection;
+        this.stmt = stmt;
+        this.rs = rs;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super E> action) {
+        if (this.closed) {
+            return false;
+        }
+
+        try {
+            if (!this.rs.next()) {
+                this.close();
+                return false;
+            }
+            action.accept(this.mapper.map(this.rs));
+            return true;
+        } catch (SQLException e) {
+            this.close();
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+
+        try {
+            this.rs.close();
+        } catch (SQLException ignored) {
+        }
+        try {
+            this.stmt.close();
+        } catch (SQLException ignored) {
+        }
+        this.connection.close();
+    }
+}
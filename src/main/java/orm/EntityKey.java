@@ -0,0 +1,26 @@
+package orm;
+
+final class EntityKey {
+
+    private final Class<?> entityClass;
+    private final Object id;
+
+    EntityKey(Class<?> entityClass, Object id) {
+        this.entityClass = entityClass;
+        this.id = id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof EntityKey)) {
+            return false;
+        }
+        EntityKey other = (EntityKey) o;
+        return this.entityClass == other.entityClass && this.id.equals(other.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * this.entityClass.hashCode() + this.id.hashCode();
+    }
+}
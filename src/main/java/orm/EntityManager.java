@@ -1,48 +1,197 @@
 package orm;
 
-import annotations.Column;
-import annotations.Entity;
-import annotations.PrimaryKey;
-import strategies.SchemaInitializationStrategy;
+import annotations.SequenceGenerator;
+import associations.Reference;
+import metadata.AssociationMetadata;
+import metadata.ColumnMetadata;
+import metadata.EntityMetadata;
+import metadata.MetadataRegistry;
+import query.Assignments;
+import query.Criteria;
+import query.Page;
+import query.PageRequest;
+import query.Query;
+import query.QueryExecutor;
+import strategies.Strategies;
+import strategies.StrategyFactory;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.sql.*;
-import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class EntityManager implements DBContext {
+public class EntityManager implements DBContext, QueryExecutor {
 
-    private static final String DATE_FORMAT_STRING = "yyyy-M-dd hh:mm:ss";
-    private static final String UPDATE_QUERY_STRING = "UPDATE %s.%s SET %s WHERE %s";
-    private static final String INSERT_QUERY_STRING = "INSERT INTO %s.%s(%s) VALUES(%s);";
-    private static final String DELETE_QUERY_STRING = "DELETE FROM %s.%s WHERE %s";
-    private static final String SELECT_QUERY_STRING = "SELECT * FROM %s.%s %s;";
+    private static final String LIMIT_ONE = " LIMIT 1";
+    private static final int TRANSACTION_STREAM_FETCH_SIZE = 1000;
 
-    private Connection connection;
+    private ConnectionPool connectionPool;
     private String dbName;
-    private SchemaInitializationStrategy strategy;
-
-    EntityManager(Connection connection, String dbName, SchemaInitializationStrategy strategy) throws SQLException, ClassNotFoundException {
-        this.connection = connection;
+    private Configuration configuration;
+    private Map<Class<?>, EntityQueries> queries;
+    private Map<Class<?>, EntityCache> caches;
+    private QueryCompiler queryCompiler;
+    private AssociationLoader associationLoader;
+    private ThreadLocal<Transaction> transactions;
+    private Map<String, SequenceIdGenerator> idGenerators;
+
+    EntityManager(ConnectionPool connectionPool, String dbName, Enum<Strategies> strategy, Configuration configuration) throws SQLException, ClassNotFoundException {
+        this.connectionPool = connectionPool;
         this.dbName = dbName;
-
-        this.strategy = strategy;
-        this.strategy.execute();
+        this.configuration = configuration;
+        this.queries = new ConcurrentHashMap<>();
+        this.caches = new ConcurrentHashMap<>();
+        this.queryCompiler = new QueryCompiler(dbName);
+        this.associationLoader = new AssociationLoader(this, configuration.getBatchSize());
+        this.transactions = new ThreadLocal<>();
+        this.idGenerators = new ConcurrentHashMap<>();
+
+        if (strategy != null) {
+            //tables are synchronized concurrently, each on a connection borrowed from the pool
+            StrategyFactory.getStrategy(strategy, callback -> {
+                try (PooledConnection conn = this.connectionPool.acquire()) {
+                    callback.execute(conn.getConnection());
+                }
+            }, dbName, configuration.getMaxPoolSize()).execute();
+        }
     }
 
     public <E> boolean persist(E entity) throws IllegalAccessException, SQLException {
-        Field primaryKey = this.getPrimaryKeyField(entity.getClass());
-        primaryKey.setAccessible(true);
-        Object value = primaryKey.get(entity);
+        EntityMetadata metadata = MetadataRegistry.get(entity.getClass());
+        Object value = metadata.getPrimaryKey().getValue(entity);
+
+        Transaction transaction = this.transactions.get();
+        if (transaction != null) {
+            if (isTransient(value)) {
+                //the ID is known right away, the INSERT still waits for the flush
+                this.assignId(metadata, entity);
+                transaction.queueInsert(entity);
+            } else {
+                transaction.queueUpdate(entity);
+            }
+            return false;
+        }
+
+        try (PooledConnection conn = this.acquire()) {
+            if (isTransient(value)) {
+                return this.doInsert(conn.getStatementCache(), entity, metadata);
+            }
+
+            return this.doUpdate(conn.getStatementCache(), entity, metadata);
+        }
+    }
+
+    public <E> void persistAll(Iterable<E> entities) throws SQLException {
+        Transaction transaction = this.transactions.get();
+        if (transaction != null) {
+            for (E entity : entities) {
+                EntityMetadata metadata = MetadataRegistry.get(entity.getClass());
+                if (isTransient(metadata.getPrimaryKey().getValue(entity))) {
+                    //as in persist(), the ID is known right away
+                    this.assignId(metadata, entity);
+                    transaction.queueInsert(entity);
+                } else {
+                    transaction.queueUpdate(entity);
+                }
+            }
+            return;
+        }
+
+        Map<Class<?>, List<Object>> inserts = new LinkedHashMap<>();
+        Map<Class<?>, List<Object>> updates = new LinkedHashMap<>();
+
+        for (E entity : entities) {
+            EntityMetadata metadata = MetadataRegistry.get(entity.getClass());
+            Map<Class<?>, List<Object>> group = isTransient(metadata.getPrimaryKey().getValue(entity)) ? inserts : updates;
+
+            group.computeIfAbsent(entity.getClass(), c -> new ArrayList<>()).add(entity);
+        }
+
+        try (PooledConnection conn = this.acquire()) {
+            StatementCache statements = conn.getStatementCache();
 
-        if (value == null || (Integer) value <= 0) {
-            return this.doInsert(entity, primaryKey);
+            for (Map.Entry<Class<?>, List<Object>> group : inserts.entrySet()) {
+                this.batchInsert(statements, MetadataRegistry.get(group.getKey()), group.getValue());
+            }
+
+            for (Map.Entry<Class<?>, List<Object>> group : updates.entrySet()) {
+                EntityMetadata metadata = MetadataRegistry.get(group.getKey());
+                this.batchUpdate(statements, metadata, metadata.getNonKeyColumns(), group.getValue());
+            }
         }
+    }
 
-        return this.doUpdate(entity);
+    public <E> void upsert(E entity) throws SQLException {
+        this.upsertAll(Collections.singletonList(entity));
+    }
+
+    /*
+    Entities with an assigned key are inserted or, when the key exists, updated without reading the row first,
+    entities without a key are inserted as by persistAll()
+    */
+    public <E> void upsertAll(Iterable<E> entities) throws SQLException {
+        Transaction transaction = this.transactions.get();
+        Map<Class<?>, List<Object>> inserts = new LinkedHashMap<>();
+        Map<Class<?>, List<Object>> upserts = new LinkedHashMap<>();
+
+        for (E entity : entities) {
+            EntityMetadata metadata = MetadataRegistry.get(entity.getClass());
+            if (metadata.getVersion() != null) {
+                throw new UnsupportedOperationException("Upsert would bypass the @Version check of " + metadata.getTableName() + ", use persist()");
+            }
+
+            boolean isNew = isTransient(metadata.getPrimaryKey().getValue(entity));
+            if (transaction != null) {
+                if (isNew) {
+                    this.assignId(metadata, entity);
+                    transaction.queueInsert(entity);
+                } else {
+                    transaction.queueUpsert(entity);
+                }
+                continue;
+            }
+
+            (isNew ? inserts : upserts).computeIfAbsent(entity.getClass(), c -> new ArrayList<>()).add(entity);
+        }
+
+        if (transaction != null) {
+            return;
+        }
+
+        try (PooledConnection conn = this.acquire()) {
+            StatementCache statements = conn.getStatementCache();
+
+            for (Map.Entry<Class<?>, List<Object>> group : inserts.entrySet()) {
+                this.batchInsert(statements, MetadataRegistry.get(group.getKey()), group.getValue());
+            }
+
+            for (Map.Entry<Class<?>, List<Object>> group : upserts.entrySet()) {
+                this.batchUpsert(statements, MetadataRegistry.get(group.getKey()), group.getValue());
+            }
+        }
+    }
+
+    public <E> void deleteAll(Iterable<E> entities) throws SQLException {
+        Transaction transaction = this.transactions.get();
+        if (transaction != null) {
+            for (E entity : entities) {
+                transaction.queueDelete(entity);
+            }
+            return;
+        }
+
+        Map<Class<?>, List<Object>> deletes = new LinkedHashMap<>();
+        for (E entity : entities) {
+            deletes.computeIfAbsent(entity.getClass(), c -> new ArrayList<>()).add(entity);
+        }
+
+        try (PooledConnection conn = this.acquire()) {
+            for (Map.Entry<Class<?>, List<Object>> group : deletes.entrySet()) {
+                this.batchDelete(conn.getStatementCache(), MetadataRegistry.get(group.getKey()), group.getValue());
+            }
+        }
     }
 
     public <E> Iterable<E> find(Class<E> table) throws IllegalAccessException, InstantiationException, InvocationTargetException, SQLException {
@@ -50,32 +199,287 @@ public class EntityManager implements DBContext {
     }
 
     public <E> Iterable<E> find(Class<E> table, String where) throws IllegalAccessException, InstantiationException, SQLException, InvocationTargetException {
-        String whereString = "";
-        if (!where.trim().isEmpty()) {
-            whereString = " WHERE " + where;
+        return this.findList(table, where);
+    }
+
+    public <E> E findById(Class<E> table, Object id) throws SQLException {
+        return this.load(MetadataRegistry.get(table), id);
+    }
+
+    public <E> List<E> findAllById(Class<E> table, Collection<?> ids) throws SQLException {
+        EntityMetadata metadata = MetadataRegistry.get(table);
+        EntityCache cache = this.getReadCache(metadata);
+        ColumnMetadata primaryKey = metadata.getPrimaryKey();
+
+        //ids are matched against the loaded keys, so a Long id must find the row of an Integer key
+        List<Object> keys = new ArrayList<>(ids.size());
+        for (Object id : ids) {
+            keys.add(primaryKey.toJavaType(id));
+        }
+
+        Map<Object, E> found = new HashMap<>();
+        List<Object> missing = new ArrayList<>();
+        for (Object id : new LinkedHashSet<>(keys)) {
+            E entity = cache.get(id);
+            if (entity != null) {
+                found.put(id, entity);
+            } else {
+                missing.add(id);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            try (PooledConnection conn = this.acquire()) {
+                this.loadByIds(conn.getStatementCache(), metadata, missing, found);
+            }
+        }
+
+        List<E> entities = new ArrayList<>(keys.size());
+        for (Object id : keys) {
+            E entity = found.get(id);
+            if (entity != null) {
+                entities.add(entity);
+            }
+        }
+
+        this.associationLoader.attach(metadata, entities);
+        return entities;
+    }
+
+    public <E> Stream<E> stream(Class<E> table) throws SQLException {
+        return this.stream(table, "");
+    }
+
+    public <E> Stream<E> stream(Class<E> table, String where) throws SQLException {
+        EntityMetadata metadata = MetadataRegistry.get(table);
+
+        return this.openStream(this.getQueries(metadata).select(where), stmt -> { },
+                this.attaching(metadata, rs -> this.hydrate(metadata, rs)));
+    }
+
+    public <E> Query<E> query(Class<E> table) {
+        return new Query<>(table, this);
+    }
+
+    public <E> List<E> list(Query<E> query) throws SQLException {
+        EntityMetadata metadata = MetadataRegistry.get(query.getEntityClass());
+        QueryCompiler.CompiledQuery compiled = this.queryCompiler.compile(query);
+        EntityCache cache = compiled.isComplete() ? this.getReadCache(metadata) : EntityCache.DISABLED;
+
+        List<E> entities = new ArrayList<>();
+
+        try (PooledConnection conn = this.acquire()) {
+            PreparedStatement stmt = conn.getStatementCache().prepare(compiled.getSql());
+            compiled.bind(stmt, query);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (compiled.getFetch() != null) {
+                    return this.readJoined(metadata, compiled, rs);
+                }
+
+                RowMapper<E> mapper = compiled.getMapper();
+                while (rs.next()) {
+                    E entity = mapper.map(rs);
+                    cache.put(entity);
+                    entities.add(entity);
+                }
+            }
+        }
+
+        if (query.getResultType() == metadata.getEntityClass()) {
+            this.associationLoader.attach(metadata, entities);
+        }
+        return entities;
+    }
+
+    public <E> Stream<E> stream(Query<E> query) throws SQLException {
+        EntityMetadata metadata = MetadataRegistry.get(query.getEntityClass());
+        QueryCompiler.CompiledQuery compiled = this.queryCompiler.compile(query);
+        AssociationMetadata fetch = compiled.getFetch();
+
+        if (fetch != null && fetch.isCollection()) {
+            throw new UnsupportedOperationException("Collection fetch joins cannot be streamed");
+        }
+        if (query.getResultType() != metadata.getEntityClass()) {
+            return this.openStream(compiled.getSql(), stmt -> compiled.bind(stmt, query), compiled.getMapper());
         }
 
-        String queryString = String.format(SELECT_QUERY_STRING,
-                this.dbName,
-                this.getTableName(table),
-                whereString
-        );
+        RowMapper<E> mapper = compiled.getMapper();
+        RowMapper<Object> fetchMapper = compiled.getFetchMapper();
+        return this.openStream(compiled.getSql(), stmt -> compiled.bind(stmt, query), this.attaching(metadata, rs -> {
+            E entity = mapper.map(rs);
+            if (fetch != null) {
+                Object target = fetchMapper.map(rs);
+                if (target != null) {
+                    fetch.setValue(entity, Reference.to(target));
+                }
+            }
+            return entity;
+        }));
+    }
 
+    public long count(Query<?> query) throws SQLException {
+        QueryCompiler.CompiledQuery compiled = this.queryCompiler.compileCount(query);
+
+        try (PooledConnection conn = this.acquire()) {
+            PreparedStatement stmt = conn.getStatementCache().prepare(compiled.getSql());
+            compiled.bind(stmt, query);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    public <E> Page<E> page(Class<E> table, PageRequest request) throws SQLException {
+        EntityMetadata metadata = MetadataRegistry.get(table);
+        ColumnMetadata primaryKey = metadata.getPrimaryKey();
+
+        List<ColumnMetadata> keys = new ArrayList<>();
+        if (request.getSortColumn() != null && !request.getSortColumn().equals(primaryKey.getName())) {
+            ColumnMetadata sort = metadata.getColumn(request.getSortColumn());
+            if (sort == null) {
+                throw new IllegalArgumentException(String.format("%s has no column %s", table.getSimpleName(), request.getSortColumn()));
+            }
+            keys.add(sort);
+        }
+        keys.add(primaryKey);
+
+        String sortColumn = keys.get(0).getName();
+        QueryCompiler.CompiledQuery compiled = this.queryCompiler.compilePage(metadata, request, keys);
+        EntityCache cache = this.getReadCache(metadata);
         List<E> entities = new ArrayList<>();
+        boolean hasNext = false;
 
-        Statement stmt = this.connection.createStatement();
-        ResultSet rs = stmt.executeQuery(queryString);
+        try (PooledConnection conn = this.acquire()) {
+            PreparedStatement stmt = conn.getStatementCache().prepare(compiled.getSql());
+            int paramIndex = compiled.bind(stmt, request.getCriteria());
+
+            if (request.getToken() != null) {
+                Object[] after = PageTokens.decode(request.getToken(), sortColumn, keys);
+                paramIndex = keys.size() == 1
+                        ? compiled.bind(stmt, paramIndex, after[0])
+                        : compiled.bind(stmt, paramIndex, after[0], after[0], after[1]);
+            }
+            stmt.setInt(++paramIndex, request.getSize() + 1);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                RowMapper<E> mapper = compiled.getMapper();
+                while (rs.next()) {
+                    if (entities.size() == request.getSize()) {
+                        hasNext = true;
+                        break;
+                    }
+                    E entity = mapper.map(rs);
+                    cache.put(entity);
+                    entities.add(entity);
+                }
+            }
+        }
+
+        this.associationLoader.attach(metadata, entities);
+        String nextToken = hasNext ? PageTokens.encode(sortColumn, keys, entities.get(entities.size() - 1)) : null;
+        return new Page<>(entities, request, nextToken);
+    }
+
+    /*
+    Fetch join: every row holds an entity and its joined association. Rows of a collection fetch repeat
+    the entity once per child, so entities are deduplicated by primary key in row order.
+    */
+    private <E> List<E> readJoined(EntityMetadata metadata, QueryCompiler.CompiledQuery compiled, ResultSet rs) throws SQLException {
+        AssociationMetadata fetch = compiled.getFetch();
+        EntityMetadata targetMetadata = MetadataRegistry.get(fetch.getTargetClass());
+        EntityCache cache = this.getReadCache(metadata);
+        EntityCache targetCache = this.getReadCache(targetMetadata);
+        RowMapper<E> mapper = compiled.getMapper();
+        RowMapper<Object> fetchMapper = compiled.getFetchMapper();
+
+        Map<Object, E> entities = new LinkedHashMap<>();
+        Map<Object, List<Object>> children = new HashMap<>();
+        Map<Object, Object> references = new HashMap<>();
+        List<Object> targets = new ArrayList<>();
 
         while (rs.next()) {
-            Constructor<E> entityConstructor = this.getEmptyConstructor(table);
-            E entity = entityConstructor.newInstance();
+            E entity = mapper.map(rs);
+            Object id = metadata.getPrimaryKey().getValue(entity);
+            E existing = entities.putIfAbsent(id, entity);
+            if (existing == null) {
+                cache.put(entity);
+            }
 
-            this.fillEntity(entity, rs);
+            Object target = fetchMapper.map(rs);
+            if (fetch.isCollection()) {
+                List<Object> list = children.computeIfAbsent(id, k -> new ArrayList<>());
+                if (target != null) {
+                    list.add(target);
+                }
+            } else if (target != null) {
+                references.put(id, target);
+            }
 
-            entities.add(entity);
+            if (target != null) {
+                targetCache.put(target);
+                targets.add(target);
+            }
         }
 
-        return entities;
+        List<E> result = new ArrayList<>(entities.values());
+        this.associationLoader.attach(metadata, result);
+        this.associationLoader.attach(targetMetadata, targets);
+
+        for (Map.Entry<Object, E> entry : entities.entrySet()) {
+            if (fetch.isCollection()) {
+                fetch.setValue(entry.getValue(), Collections.unmodifiableList(children.get(entry.getKey())));
+            } else if (references.containsKey(entry.getKey())) {
+                fetch.setValue(entry.getValue(), Reference.to(references.get(entry.getKey())));
+            }
+        }
+
+        return result;
+    }
+
+    //binds the lazy associations of each streamed entity, streams are not batched across rows
+    private <E> RowMapper<E> attaching(EntityMetadata metadata, RowMapper<E> mapper) {
+        if (metadata.getAssociations().isEmpty()) {
+            return mapper;
+        }
+
+        return rs -> {
+            E entity = mapper.map(rs);
+            this.associationLoader.attach(metadata, Collections.singletonList(entity));
+            return entity;
+        };
+    }
+
+    //the statement is not cached, its fetch size is specific to streaming and it stays open with the stream
+    private <E> Stream<E> openStream(String sql, StatementParameters parameters, RowMapper<E> mapper) throws SQLException {
+        PooledConnection conn = this.acquire();
+        PreparedStatement stmt = null;
+        try {
+            stmt = conn.getConnection().prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(this.getStreamFetchSize());
+            parameters.bind(stmt);
+
+            EntityCursor<E> cursor = new EntityCursor<>(conn, stmt, stmt.executeQuery(), mapper);
+            return StreamSupport.stream(cursor, false).onClose(cursor::close);
+        } catch (SQLException | RuntimeException e) {
+            if (stmt != null) {
+                stmt.close();
+            }
+            conn.close();
+            throw e;
+        }
+    }
+
+    /*
+    Inside a transaction the stream shares the connection with lazy loads and flushes, which MySQL refuses
+    while a row-by-row streaming result is open. Rows are then fetched in chunks through a cursor
+    (useCursorFetch=true) or buffered by the driver.
+    */
+    private int getStreamFetchSize() {
+        int fetchSize = this.configuration.getStreamFetchSize();
+        return this.transactions.get() != null && fetchSize < 0 ? TRANSACTION_STREAM_FETCH_SIZE : fetchSize;
     }
 
     public <E> E findFirst(Class<E> table) throws IllegalAccessException, InstantiationException, InvocationTargetException, SQLException {
@@ -83,222 +487,631 @@ public class EntityManager implements DBContext {
     }
 
     public <E> E findFirst(Class<E> table, String where) throws InstantiationException, IllegalAccessException, InvocationTargetException, SQLException {
-        String whereString = " LIMIT 1";
-        if (!where.trim().isEmpty()) {
-            whereString = " WHERE " + where +  " LIMIT 1";
-        }
+        return this.first(MetadataRegistry.get(table), where);
+    }
 
-        String query = String.format(SELECT_QUERY_STRING,
-                this.dbName,
-                this.getTableName(table),
-                whereString
-        );
+    public <E> void doDelete(E entity) throws Exception {
+        Transaction transaction = this.transactions.get();
+        if (transaction != null) {
+            transaction.queueDelete(entity);
+            return;
+        }
 
-        Statement stmt = this.connection.createStatement();
-        ResultSet rs = stmt.executeQuery(query);
+        EntityMetadata metadata = MetadataRegistry.get(entity.getClass());
+        ColumnMetadata primaryKey = metadata.getPrimaryKey();
 
-        E entity = null;
+        try (PooledConnection conn = this.acquire()) {
+            PreparedStatement stmt = conn.getStatementCache().prepare(this.getQueries(metadata).delete());
+            primaryKey.getConverter().bind(stmt, 1, primaryKey.getValue(entity));
 
-        if (rs.first()) {
-            Constructor<E> entityConstructor = this.getEmptyConstructor(table);
-            entity = entityConstructor.newInstance();
-            this.fillEntity(entity, rs);
+            stmt.executeUpdate();
         }
 
-        return entity;
+        this.getCache(metadata).invalidate(entity);
     }
 
-    public <E> void doDelete(E entity) throws Exception {
-        Class<?> entityClass = entity.getClass();
+    public <E> long deleteWhere(Class<E> table, Criteria criteria) throws SQLException {
+        return this.executeBulk(MetadataRegistry.get(table), null, criteria, 0);
+    }
+
+    public <E> long deleteWhere(Class<E> table, Criteria criteria, int chunkSize) throws SQLException {
+        return this.executeBulk(MetadataRegistry.get(table), null, criteria, chunkSize);
+    }
+
+    public <E> long updateWhere(Class<E> table, Assignments assignments, Criteria criteria) throws SQLException {
+        return this.executeBulk(MetadataRegistry.get(table), assignments, criteria, 0);
+    }
 
-        String tableName = this.getTableName(entityClass);
+    public <E> long updateWhere(Class<E> table, Assignments assignments, Criteria criteria, int chunkSize) throws SQLException {
+        return this.executeBulk(MetadataRegistry.get(table), assignments, criteria, chunkSize);
+    }
 
-        Field primaryKey = this.getPrimaryKeyField(entityClass);
-        primaryKey.setAccessible(true);
+    public Transaction begin() throws SQLException {
+        return this.begin(Isolation.DEFAULT, false);
+    }
 
-        String pkColumnName = primaryKey.getAnnotation(Column.class).name();
-        Object pkValue = primaryKey.get(entity);
+    public Transaction begin(Isolation isolation, boolean readOnly) throws SQLException {
+        Transaction current = this.transactions.get();
+        if (current != null) {
+            Transaction nested = new Transaction(current);
+            this.transactions.set(nested);
+            return nested;
+        }
 
-        String where = pkColumnName + " = " + pkValue;
+        PooledConnection conn = this.connectionPool.acquire();
+        Transaction transaction;
+        try {
+            transaction = new Transaction(this, conn, isolation, readOnly);
+        } catch (SQLException | RuntimeException e) {
+            conn.close();
+            throw e;
+        }
 
-        String queryString = String.format(DELETE_QUERY_STRING,
-                this.dbName,
-                tableName,
-                where
-        );
+        this.transactions.set(transaction);
+        return transaction;
+    }
 
-        this.connection.createStatement()
-                .executeUpdate(queryString);
+    public <T> T inTransaction(TransactionCallback<T> work) throws SQLException {
+        return this.inTransaction(Isolation.DEFAULT, false, work);
     }
 
-    private Field getPrimaryKeyField(Class entity) {
-        Field[] fields = entity.getDeclaredFields();
-        for (Field field : fields) {
-            if (field.isAnnotationPresent(PrimaryKey.class)) return field;
+    public <T> T inTransaction(Isolation isolation, boolean readOnly, TransactionCallback<T> work) throws SQLException {
+        try (Transaction transaction = this.begin(isolation, readOnly)) {
+            T result = work.execute();
+            transaction.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException("Transaction rolled back: " + e.getMessage(), e);
         }
+    }
 
-        throw new UnsupportedOperationException("Entity does not have primary key!");
+    public Session openSession() {
+        return new Session(this);
     }
 
-    private <E> boolean doUpdate(E entity) throws SQLException, IllegalAccessException {
-        PreparedStatement prepStatement = constructStatementQuery(entity);
+    @Override
+    public void close() {
+        this.connectionPool.close();
+    }
 
-        this.setStatementValues(entity, prepStatement);
+    <E> List<E> findList(Class<E> table, String where) throws SQLException {
+        EntityMetadata metadata = MetadataRegistry.get(table);
 
-        return prepStatement.execute();
+        return this.query(metadata, this.getQueries(metadata).select(where), isTemplate(where));
     }
 
-    private <E> boolean doInsert(E entity, Field primaryKey) throws IllegalAccessException, SQLException {
-        String tableName = this.getTableName(entity.getClass());
+    /*
+    Rows of a SELECT built from a where string. Only the fixed templates without a where string are prepared
+    through the statement cache, every distinct ad-hoc string would cost a server-side prepare and push the
+    CRUD statements out of the cache, so those run as plain statements.
+    */
+    private <E> List<E> query(EntityMetadata metadata, String sql, boolean template) throws SQLException {
+        EntityCache cache = this.getReadCache(metadata);
+        List<E> entities = cache.getQuery(sql);
+        if (entities != null) {
+            this.associationLoader.attach(metadata, entities);
+            return entities;
+        }
 
-        List<String> columns = new ArrayList<>();
-        List<String> values = new ArrayList<>();
+        entities = new ArrayList<>();
 
-        Field[] fields = entity.getClass().getDeclaredFields();
-        for (Field field : fields) {
-            field.setAccessible(true);
+        try (PooledConnection conn = this.acquire();
+             Statement stmt = template ? null : conn.getConnection().createStatement();
+             ResultSet rs = template ? conn.getStatementCache().prepare(sql).executeQuery() : stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                E entity = this.hydrate(metadata, rs);
+                cache.put(entity);
+                entities.add(entity);
+            }
+        }
 
-            if (field.getName().equals(primaryKey.getName())) {
-                continue;
+        cache.putQuery(sql, entities);
+        this.associationLoader.attach(metadata, entities);
+        return entities;
+    }
+
+    private static boolean isTemplate(String where) {
+        return where.trim().isEmpty();
+    }
+
+    <E> E first(EntityMetadata metadata, String where) throws SQLException {
+        List<E> entities = this.query(metadata, this.getQueries(metadata).select(where) + LIMIT_ONE, isTemplate(where));
+
+        return entities.isEmpty() ? null : entities.get(0);
+    }
+
+    <E> E load(EntityMetadata metadata, Object id) throws SQLException {
+        ColumnMetadata primaryKey = metadata.getPrimaryKey();
+        id = primaryKey.toJavaType(id);
+
+        EntityCache cache = this.getReadCache(metadata);
+        E entity = cache.get(id);
+
+        if (entity == null) {
+            try (PooledConnection conn = this.acquire()) {
+                PreparedStatement stmt = conn.getStatementCache().prepare(this.getQueries(metadata).selectById());
+                primaryKey.getConverter().bind(stmt, 1, id);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        entity = this.hydrate(metadata, rs);
+                        cache.put(entity);
+                    }
+                }
             }
+        }
 
-            columns.add(this.getColumnName(field));
-            Object value = field.get(entity);
+        if (entity != null) {
+            this.associationLoader.attach(metadata, Collections.singletonList(entity));
+        }
+        return entity;
+    }
 
-            if (value instanceof Date) {
-                String dateValue = "'" + new SimpleDateFormat(DATE_FORMAT_STRING).format(value) + "'";
-                values.add(dateValue);
-            } else {
-                values.add("'" + value + "'");
+    /*
+    Loads the rows in chunks of at most the batch size. The number of placeholders is rounded up
+    to a power of two and padded with the last id, so only a handful of IN templates are ever prepared.
+    */
+    private <E> void loadByIds(StatementCache statements, EntityMetadata metadata, List<Object> ids, Map<Object, E> found) throws SQLException {
+        EntityQueries queries = this.getQueries(metadata);
+        EntityCache cache = this.getReadCache(metadata);
+        ColumnMetadata primaryKey = metadata.getPrimaryKey();
+        int chunkSize = this.configuration.getBatchSize();
+
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Object> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            int placeholders = Math.min(Integer.highestOneBit(chunk.size() * 2 - 1), chunkSize);
+
+            PreparedStatement stmt = statements.prepare(queries.selectByIds(placeholders));
+            for (int i = 0; i < placeholders; i++) {
+                primaryKey.getConverter().bind(stmt, i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    E entity = this.hydrate(metadata, rs);
+                    cache.put(entity);
+                    found.put(primaryKey.getValue(entity), entity);
+                }
             }
         }
+    }
 
-        String queryString = String.format(INSERT_QUERY_STRING,
-                this.dbName,
-                tableName,
-                String.join(", ", columns),
-                String.join(", ", values)
-        );
+    /*
+    Runs the work on one connection in a single transaction, rolled back if the work fails.
+    Inside a transaction begun on this thread the work joins it and is committed with it.
+    */
+    void transactional(TransactionWork work) throws SQLException {
+        Transaction transaction = this.transactions.get();
+        if (transaction != null) {
+            transaction.flush();
+            work.execute(transaction.getConnection().getStatementCache());
+            return;
+        }
 
-        return this.connection.prepareStatement(queryString).execute();
+        //a transaction of its own, so the cache entries of the written rows are evicted again after the commit
+        try (Transaction own = this.begin()) {
+            work.execute(own.getConnection().getStatementCache());
+            own.commit();
+        }
     }
 
-    private <E> void fillEntity(E entity, ResultSet rs) throws SQLException, IllegalAccessException {
-        Field[] fields = entity.getClass().getDeclaredFields();
-        for (Field field : fields) {
-            field.setAccessible(true);
-            field.set(entity, this.getFieldValue(field, rs));
+    void batchUpdate(StatementCache statements, EntityMetadata metadata, List<ColumnMetadata> columns, List<Object> entities) throws SQLException {
+        ColumnMetadata version = metadata.getVersion();
+        if (version != null && !columns.contains(version)) {
+            //a versioned row is always written with its next version, even when only other columns changed
+            columns = new ArrayList<>(columns);
+            columns.add(version);
+        }
+
+        List<ColumnMetadata> updateColumns = columns;
+        Object[] nextVersions = new Object[entities.size()];
+        int[] index = {0};
+
+        int[] counts = this.executeBatches(statements, this.getQueries(metadata).update(updateColumns), entities,
+                (stmt, entity) -> nextVersions[index[0]++] = this.bindUpdate(stmt, metadata, updateColumns, entity));
+
+        this.invalidate(metadata, entities);
+        if (version != null) {
+            this.applyVersions(metadata, entities, nextVersions, counts);
         }
     }
 
-    private Object getFieldValue(Field field, ResultSet rs) throws SQLException {
-        String columnName = field.getAnnotation(Column.class).name();
+    void batchDelete(StatementCache statements, EntityMetadata metadata, List<Object> entities) throws SQLException {
+        ColumnMetadata primaryKey = metadata.getPrimaryKey();
+
+        this.executeBatches(statements, this.getQueries(metadata).delete(), entities,
+                (stmt, entity) -> primaryKey.getConverter().bind(stmt, 1, primaryKey.getValue(entity)));
+
+        this.invalidate(metadata, entities);
+    }
+
+    private <E> boolean doUpdate(StatementCache statements, E entity, EntityMetadata metadata) throws SQLException {
+        PreparedStatement prepStatement = statements.prepare(this.getQueries(metadata).update());
+
+        Object nextVersion = this.bindUpdate(prepStatement, metadata, metadata.getNonKeyColumns(), entity);
+
+        boolean result = prepStatement.execute();
+        int count = prepStatement.getUpdateCount();
+        this.getCache(metadata).invalidate(entity);
 
-        switch (field.getType().getSimpleName()) {
-            case "Integer":
-            case "int":
-                return rs.getInt(columnName);
-            case "String":
-                return rs.getString(columnName);
-            case "Date":
-                return rs.getDate(columnName);
-            default:
-                return null;
+        ColumnMetadata version = metadata.getVersion();
+        if (version != null) {
+            if (count == 0) {
+                throw new StaleStateException(entity, metadata.getPrimaryKey().getValue(entity), version.getValue(entity));
+            }
+            version.setValue(entity, nextVersion);
         }
+        return result;
     }
 
-    private <E> void setStatementValues(E entity, PreparedStatement stmt) throws IllegalAccessException, SQLException {
+    /*
+    Binds the SET columns, the primary key and, for a versioned entity, the version the row was read with.
+    The version column itself is set to the next version, which is returned (null when not versioned).
+    */
+    private Object bindUpdate(PreparedStatement stmt, EntityMetadata metadata, List<ColumnMetadata> columns, Object entity) throws SQLException {
+        ColumnMetadata version = metadata.getVersion();
+        Object currentVersion = version == null ? null : version.getValue(entity);
+        Object nextVersion = version == null ? null : version.nextVersion(currentVersion);
+
         int paramIndex = 0;
-        Field[] fields = entity.getClass().getDeclaredFields();
+        for (ColumnMetadata column : columns) {
+            column.getConverter().bind(stmt, ++paramIndex, column == version ? nextVersion : column.getValue(entity));
+        }
 
-        for (Field field : fields) {
-            paramIndex++;
-            field.setAccessible(true);
+        ColumnMetadata primaryKey = metadata.getPrimaryKey();
+        primaryKey.getConverter().bind(stmt, ++paramIndex, primaryKey.getValue(entity));
 
-            Object value = field.get(entity);
+        if (version != null) {
+            version.getConverter().bind(stmt, ++paramIndex, currentVersion);
+        }
+        return nextVersion;
+    }
 
-            if (field.isAnnotationPresent(PrimaryKey.class)) {
-                this.setStatementValue(stmt, fields.length, value);
-                paramIndex--;
+    /*
+    Moves the entities of a batch update to their next version, an update count of zero means the row was
+    changed or deleted concurrently. Drivers that only report SUCCESS_NO_INFO leave nothing to verify.
+    */
+    private void applyVersions(EntityMetadata metadata, List<Object> entities, Object[] nextVersions, int[] counts) throws SQLException {
+        ColumnMetadata version = metadata.getVersion();
+        Object stale = null;
+
+        for (int i = 0; i < entities.size(); i++) {
+            Object entity = entities.get(i);
+            if (counts[i] == 0) {
+                if (stale == null) {
+                    stale = entity;
+                }
             } else {
-                this.setStatementValue(stmt, paramIndex, value);
+                version.setValue(entity, nextVersions[i]);
             }
         }
+
+        if (stale != null) {
+            throw new StaleStateException(stale, metadata.getPrimaryKey().getValue(stale), version.getValue(stale));
+        }
     }
 
-    private void setStatementValue(PreparedStatement stmt, int index, Object value) throws SQLException {
-        String fieldJavaType = value.getClass().getSimpleName();
+    private <E> boolean doInsert(StatementCache statements, E entity, EntityMetadata metadata) throws SQLException {
+        this.assignId(metadata, entity);
+        this.initVersion(metadata, entity);
+        boolean generatedKey = metadata.getSequenceGenerator() == null;
+
+        PreparedStatement prepStatement = statements.prepare(this.getQueries(metadata).insert(), generatedKey);
 
-        switch (fieldJavaType) {
-            case "int":
-            case "Integer":
-                stmt.setInt(index, (Integer) value);
-                break;
-            case "String":
-                stmt.setString(index, (String) value);
-                break;
-            case "Date":
-                stmt.setString(index, new SimpleDateFormat(DATE_FORMAT_STRING).format(value));
-                break;
-            default:
-                throw new UnsupportedOperationException("Not supported Java type!");
+        this.setInsertValues(entity, metadata, prepStatement, 0);
+
+        boolean result = prepStatement.execute();
+        if (generatedKey) {
+            //without the key a second persist() would insert the entity again
+            this.readGeneratedKeys(prepStatement, metadata.getPrimaryKey(), Collections.singletonList(entity));
         }
+        this.getCache(metadata).invalidateQueries();
+        return result;
     }
 
-    private <E> PreparedStatement constructStatementQuery(E entity) throws SQLException {
-        String tableName = this.getTableName(entity.getClass());
-        String where = "";
+    void batchInsert(StatementCache statements, EntityMetadata metadata, List<Object> entities) throws SQLException {
+        EntityQueries queries = this.getQueries(metadata);
+        int batchSize = this.configuration.getBatchSize();
+        boolean generatedKeys = metadata.getSequenceGenerator() == null;
 
-        Field[] fields = entity.getClass().getDeclaredFields();
+        for (Object entity : entities) {
+            this.assignId(metadata, entity);
+            this.initVersion(metadata, entity);
+        }
+        this.getCache(metadata).invalidateQueries();
 
-        List<String> columns = new ArrayList<>();
-        for (Field field : fields) {
-            field.setAccessible(true);
+        if (!this.configuration.isMultiRowInserts()) {
+            this.executeBatches(statements, queries.insert(), entities,
+                    (stmt, entity) -> this.setInsertValues(entity, metadata, stmt, 0),
+                    generatedKeys ? metadata.getPrimaryKey() : null);
+            return;
+        }
 
-            if (field.isAnnotationPresent(PrimaryKey.class)) {
-                where = field.getAnnotation(Column.class).name() + " = ?;";
-                continue;
+        int columnCount = metadata.getInsertColumns().size();
+        for (int from = 0; from < entities.size(); from += batchSize) {
+            List<Object> chunk = entities.subList(from, Math.min(from + batchSize, entities.size()));
+
+            PreparedStatement stmt = statements.prepare(queries.insert(chunk.size()), generatedKeys);
+            int offset = 0;
+            for (Object entity : chunk) {
+                this.setInsertValues(entity, metadata, stmt, offset);
+                offset += columnCount;
             }
 
-            columns.add(field.getAnnotation(Column.class).name() + " = ?");
+            stmt.executeUpdate();
+            if (generatedKeys) {
+                this.readGeneratedKeys(stmt, metadata.getPrimaryKey(), chunk);
+            }
         }
+    }
+
+    //one statement per batch, a multi-row upsert when multi-row inserts are enabled
+    void batchUpsert(StatementCache statements, EntityMetadata metadata, List<Object> entities) throws SQLException {
+        EntityQueries queries = this.getQueries(metadata);
+        List<ColumnMetadata> columns = metadata.getColumns();
 
-        String stmString = String.format(UPDATE_QUERY_STRING,
-                this.dbName,
-                tableName,
-                String.join(", ", columns),
-                where
-        );
+        if (!this.configuration.isMultiRowInserts()) {
+            this.executeBatches(statements, queries.upsert(1), entities,
+                    (stmt, entity) -> this.bindValues(entity, columns, stmt, 0));
+        } else {
+            int batchSize = this.configuration.getBatchSize();
+            for (int from = 0; from < entities.size(); from += batchSize) {
+                List<Object> chunk = entities.subList(from, Math.min(from + batchSize, entities.size()));
+
+                PreparedStatement stmt = statements.prepare(queries.upsert(chunk.size()));
+                int offset = 0;
+                for (Object entity : chunk) {
+                    this.bindValues(entity, columns, stmt, offset);
+                    offset += columns.size();
+                }
+
+                stmt.executeUpdate();
+            }
+        }
 
-        return this.connection.prepareStatement(stmString);
+        this.invalidate(metadata, entities);
     }
 
-    private String getColumnName(Field entityField) {
-        if (entityField.isAnnotationPresent(Column.class)) {
-            return entityField.getAnnotation(Column.class).name();
-        } else {
-            return null;
+    /*
+    Runs a bulk DELETE or UPDATE (assignments not null) over all matching rows at once, or, with a positive chunkSize,
+    over consecutive primary key ranges of chunkSize matching rows each. Outside a transaction every chunk commits
+    on its own, so row locks are held for one chunk at a time. Returns the number of affected rows.
+    */
+    private long executeBulk(EntityMetadata metadata, Assignments assignments, Criteria criteria, int chunkSize) throws SQLException {
+        if (chunkSize < 0) {
+            throw new IllegalArgumentException("Chunk size must not be negative");
         }
 
+        long affected = 0;
+        try (PooledConnection conn = this.acquire()) {
+            StatementCache statements = conn.getStatementCache();
+            if (chunkSize == 0) {
+                return this.executeBulk(statements, metadata, assignments, criteria, null, null);
+            }
+
+            //primary keys are never NULL, so null stands for an open end of the range
+            Object lower = null;
+            do {
+                Object upper = this.findChunkBoundary(statements, metadata, criteria, lower, chunkSize);
+                affected += this.executeBulk(statements, metadata, assignments, criteria, lower, upper);
+                lower = upper;
+            } while (lower != null);
+
+            return affected;
+        } finally {
+            //the changed rows are not known, nothing cached for the entity can be trusted
+            this.invalidateAll(metadata);
+        }
     }
 
-    private String getTableName(Class<?> entityClass) {
-        if (entityClass.isAnnotationPresent(Entity.class)) {
-            return entityClass.getAnnotation(Entity.class).name();
-        } else {
-            throw new IllegalArgumentException("Invalid Entity class");
+    private long executeBulk(StatementCache statements, EntityMetadata metadata, Assignments assignments, Criteria criteria,
+                             Object lower, Object upper) throws SQLException {
+        QueryCompiler.CompiledQuery compiled = this.queryCompiler.compileBulk(metadata, assignments, criteria, lower != null, upper != null);
+        PreparedStatement stmt = statements.prepare(compiled.getSql());
+
+        int paramIndex = 0;
+        if (assignments != null) {
+            paramIndex = compiled.bind(stmt, paramIndex, assignments.getValues().values().toArray());
+        }
+        paramIndex = compiled.bind(stmt, paramIndex, criteria);
+        if (lower != null) {
+            paramIndex = compiled.bind(stmt, paramIndex, lower);
         }
+        if (upper != null) {
+            compiled.bind(stmt, paramIndex, upper);
+        }
+
+        return stmt.executeUpdate();
     }
 
-    private <E> Constructor<E> getEmptyConstructor(Class<E> table) {
-        Constructor[] allConstructors = table.getDeclaredConstructors();
+    //primary key of the last row of the next chunk, null when fewer than chunkSize matching rows are left
+    private Object findChunkBoundary(StatementCache statements, EntityMetadata metadata, Criteria criteria,
+                                     Object lower, int chunkSize) throws SQLException {
+        QueryCompiler.CompiledQuery compiled = this.queryCompiler.compileChunkBoundary(metadata, criteria, lower != null);
+        PreparedStatement stmt = statements.prepare(compiled.getSql());
 
-        for (Constructor ctor : allConstructors) {
-            Class<?>[] parameterTypes = ctor.getParameterTypes();
-            if (parameterTypes.length == 0) {
-                return (Constructor<E>) ctor;
+        int paramIndex = compiled.bind(stmt, 0, criteria);
+        if (lower != null) {
+            paramIndex = compiled.bind(stmt, paramIndex, lower);
+        }
+        stmt.setInt(++paramIndex, chunkSize - 1);
+
+        try (ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? metadata.getPrimaryKey().getConverter().read(rs, 1) : null;
+        }
+    }
+
+    private int[] executeBatches(StatementCache statements, String sql, List<Object> entities, StatementBinder binder) throws SQLException {
+        return this.executeBatches(statements, sql, entities, binder, null);
+    }
+
+    /*
+    Returns the update count of every entity.
+    generatedKey is the primary key to fill from the generated keys of each batch, or null.
+    */
+    private int[] executeBatches(StatementCache statements, String sql, List<Object> entities, StatementBinder binder, ColumnMetadata generatedKey) throws SQLException {
+        PreparedStatement stmt = statements.prepare(sql, generatedKey != null);
+        int batchSize = this.configuration.getBatchSize();
+        int[] counts = new int[entities.size()];
+        Arrays.fill(counts, Statement.SUCCESS_NO_INFO);
+
+        int batchStart = 0;
+        for (int i = 0; i < entities.size(); i++) {
+            binder.bind(stmt, entities.get(i));
+            stmt.addBatch();
+
+            if (i + 1 - batchStart == batchSize || i + 1 == entities.size()) {
+                int[] batchCounts = stmt.executeBatch();
+                System.arraycopy(batchCounts, 0, counts, batchStart, Math.min(batchCounts.length, i + 1 - batchStart));
+
+                if (generatedKey != null) {
+                    this.readGeneratedKeys(stmt, generatedKey, entities.subList(batchStart, i + 1));
+                }
+                batchStart = i + 1;
+            }
+        }
+        return counts;
+    }
+
+    private void readGeneratedKeys(PreparedStatement stmt, ColumnMetadata primaryKey, List<Object> entities) throws SQLException {
+        try (ResultSet keys = stmt.getGeneratedKeys()) {
+            for (Object entity : entities) {
+                if (!keys.next()) {
+                    break;
+                }
+                primaryKey.setValue(entity, primaryKey.getConverter().read(keys, 1));
             }
         }
-        throw new IllegalArgumentException("Entity must have public default constructor");
     }
-}
\ No newline at end of file
+
+    private <E> void setInsertValues(E entity, EntityMetadata metadata, PreparedStatement stmt, int offset) throws SQLException {
+        this.bindValues(entity, metadata.getInsertColumns(), stmt, offset);
+    }
+
+    private void bindValues(Object entity, List<ColumnMetadata> columns, PreparedStatement stmt, int offset) throws SQLException {
+        int paramIndex = offset;
+        for (ColumnMetadata column : columns) {
+            column.getConverter().bind(stmt, ++paramIndex, column.getValue(entity));
+        }
+    }
+
+    //assigns the next ID of the sequence to a new entity mapped with @SequenceGenerator
+    private void assignId(EntityMetadata metadata, Object entity) throws SQLException {
+        SequenceGenerator sequence = metadata.getSequenceGenerator();
+        ColumnMetadata primaryKey = metadata.getPrimaryKey();
+        if (sequence == null || !isTransient(primaryKey.getValue(entity))) {
+            return;
+        }
+
+        String name = sequence.name().isEmpty() ? metadata.getTableName() : sequence.name();
+        long id = this.idGenerators.computeIfAbsent(name, n ->
+                new SequenceIdGenerator(this.connectionPool, this.dbName, n, sequence.allocationSize(), metadata)).next();
+
+        Class<?> keyType = primaryKey.getJavaType();
+        primaryKey.setValue(entity, keyType == int.class || keyType == Integer.class ? (Object) Math.toIntExact(id) : (Object) id);
+    }
+
+    //a new versioned entity starts at the initial version unless one was set explicitly
+    private void initVersion(EntityMetadata metadata, Object entity) {
+        ColumnMetadata version = metadata.getVersion();
+        if (version != null && version.getValue(entity) == null) {
+            version.setValue(entity, version.initialVersion());
+        }
+    }
+
+    private <E> E hydrate(EntityMetadata metadata, ResultSet rs) throws SQLException {
+        E entity = metadata.newInstance();
+
+        int columnIndex = 0;
+        for (ColumnMetadata column : metadata.getColumns()) {
+            column.readValue(entity, rs, ++columnIndex);
+        }
+
+        return entity;
+    }
+
+    //the connection of the transaction bound to this thread, after its queued writes, or a pooled one
+    PooledConnection acquire() throws SQLException {
+        Transaction transaction = this.transactions.get();
+        if (transaction == null) {
+            return this.connectionPool.acquire();
+        }
+
+        transaction.flush();
+        return transaction.getConnection();
+    }
+
+    void unbind(Transaction transaction) {
+        if (this.transactions.get() == transaction) {
+            if (transaction.getParent() != null) {
+                this.transactions.set(transaction.getParent());
+            } else {
+                this.transactions.remove();
+            }
+        }
+    }
+
+    EntityQueries getQueries(EntityMetadata metadata) {
+        return this.queries.computeIfAbsent(metadata.getEntityClass(), c -> new EntityQueries(this.dbName, metadata, this.configuration.getDialect()));
+    }
+
+    EntityCache getCache(EntityMetadata metadata) {
+        return this.caches.computeIfAbsent(metadata.getEntityClass(),
+                c -> EntityCache.of(this.configuration.getCacheManager(), this.dbName, metadata));
+    }
+
+    /*
+    Second-level cache of the read paths, bypassed inside a transaction: cached rows do not reflect its queued
+    writes, and rows it reads can hold flushed but uncommitted writes, which other threads must not be served
+    and a rollback would not evict.
+    */
+    private EntityCache getReadCache(EntityMetadata metadata) {
+        return this.transactions.get() == null ? this.getCache(metadata) : EntityCache.DISABLED;
+    }
+
+    //inside a transaction the entities are evicted once more after the commit, see Transaction.afterCommit()
+    private void invalidate(EntityMetadata metadata, List<Object> entities) {
+        EntityCache cache = this.getCache(metadata);
+        for (Object entity : entities) {
+            cache.invalidate(entity);
+        }
+
+        Transaction transaction = this.transactions.get();
+        if (transaction != null) {
+            List<Object> written = new ArrayList<>(entities);
+            transaction.afterCommit(() -> {
+                for (Object entity : written) {
+                    cache.invalidate(entity);
+                }
+            });
+        }
+    }
+
+    private void invalidateAll(EntityMetadata metadata) {
+        EntityCache cache = this.getCache(metadata);
+        cache.invalidateAll();
+
+        Transaction transaction = this.transactions.get();
+        if (transaction != null) {
+            transaction.afterCommit(cache::invalidateAll);
+        }
+    }
+
+    static boolean isTransient(Object primaryKeyValue) {
+        return primaryKeyValue == null || (primaryKeyValue instanceof Number && ((Number) primaryKeyValue).longValue() <= 0);
+    }
+
+    private interface StatementParameters {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+
+    private interface StatementBinder {
+        void bind(PreparedStatement stmt, Object entity) throws SQLException;
+    }
+
+    interface TransactionWork {
+        void execute(StatementCache statements) throws SQLException;
+    }
+}
@@ -1,29 +1,105 @@
 package orm;
 
-import strategies.SchemaInitializationStrategy;
+import cache.CacheManager;
+import metrics.StatementListener;
 import strategies.Strategies;
-import strategies.StrategyFactory;
 
-import java.sql.Connection;
 import java.sql.SQLException;
 
 public class EntityManagerBuilder {
 
-    private Connection connection;
+    private ConnectionPool connectionPool;
     private String dbName;
-    private SchemaInitializationStrategy strategy;
+    private Enum<Strategies> strategy;
+    private Configuration configuration = new Configuration();
 
     public Connector configureConnectionString() {
         return new Connector(this);
     }
 
+    //opens the connection pool, the pool settings of the Connector must be set before this call
+    public EntityManagerBuilder setConnectionFactory(ConnectionFactory connectionFactory) throws SQLException {
+        this.connectionPool = new ConnectionPool(connectionFactory, this.configuration);
+        return this;
+    }
+
     public EntityManagerBuilder setStrategy(Enum<Strategies> strategyClassName) {
-        this.strategy = StrategyFactory.getStrategy(strategyClassName, this.connection, this.dbName);
+        this.strategy = strategyClassName;
         return this;
     }
 
     public DBContext build() throws SQLException, ClassNotFoundException {
-        return new EntityManager(this.connection, this.dbName, this.strategy);
+        return new EntityManager(this.connectionPool, this.dbName, this.strategy, this.configuration);
+    }
+
+    public AsyncDBContext buildAsync() throws SQLException, ClassNotFoundException {
+        EntityManager entityManager = new EntityManager(this.connectionPool, this.dbName, this.strategy, this.configuration);
+        return new AsyncEntityManager(entityManager, this.configuration.getMaxInFlightQueries());
+    }
+
+    //limit of concurrently executing statements of buildAsync() contexts, defaults to the maximum pool size
+    public EntityManagerBuilder setMaxInFlightQueries(int maxInFlightQueries) {
+        if (maxInFlightQueries <= 0) {
+            throw new IllegalArgumentException("Maximum in-flight queries must be positive");
+        }
+        this.configuration.setMaxInFlightQueries(maxInFlightQueries);
+        return this;
+    }
+
+    public EntityManagerBuilder setStatementCacheSize(int statementCacheSize) {
+        if (statementCacheSize <= 0) {
+            throw new IllegalArgumentException("Statement cache size must be positive");
+        }
+        this.configuration.setStatementCacheSize(statementCacheSize);
+        return this;
+    }
+
+    public EntityManagerBuilder setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.configuration.setBatchSize(batchSize);
+        return this;
+    }
+
+    //persistAll() sends each batch of new entities as one INSERT ... VALUES (...), (...) statement
+    public EntityManagerBuilder setMultiRowInserts(boolean multiRowInserts) {
+        this.configuration.setMultiRowInserts(multiRowInserts);
+        return this;
+    }
+
+    //SQL of the database specific statements such as upsert(), defaults to MySqlDialect
+    public EntityManagerBuilder setDialect(Dialect dialect) {
+        if (dialect == null) {
+            throw new IllegalArgumentException("Dialect must not be null");
+        }
+        this.configuration.setDialect(dialect);
+        return this;
+    }
+
+    /*
+    fetch size of the result sets behind stream(), the default Integer.MIN_VALUE
+    is the MySQL row-by-row streaming mode, use a positive size with cursor fetch (useCursorFetch=true)
+    or with other drivers. Streams inside a transaction use a positive size instead of the streaming mode
+    */
+    public EntityManagerBuilder setStreamFetchSize(int streamFetchSize) {
+        this.configuration.setStreamFetchSize(streamFetchSize);
+        return this;
+    }
+
+    //second-level cache of the @Cacheable entities, defaults to the cache shared by all entity managers
+    public EntityManagerBuilder setCacheManager(CacheManager cacheManager) {
+        this.configuration.setCacheManager(cacheManager);
+        return this;
+    }
+
+    /*
+    receives every executed statement and the connection wait times, see metrics.QueryMetrics,
+    statements run unwrapped when no listener is set
+    */
+    public EntityManagerBuilder setStatementListener(StatementListener statementListener) {
+        this.configuration.setStatementListener(statementListener);
+        return this;
     }
 
     public EntityManagerBuilder setDataSource(String dbName) {
@@ -31,7 +107,7 @@ public class EntityManagerBuilder {
         return this;
     }
 
-    void setConnection(Connection connection) {
-        this.connection = connection;
+    Configuration getConfiguration() {
+        return this.configuration;
     }
 }
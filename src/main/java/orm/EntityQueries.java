@@ -0,0 +1,148 @@
+package orm;
+
+import metadata.ColumnMetadata;
+import metadata.EntityMetadata;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class EntityQueries {
+
+    private static final String SELECT_QUERY_STRING = "SELECT %s FROM %s.%s";
+    private static final String INSERT_QUERY_STRING = "INSERT INTO %s.%s(%s) VALUES(%s)";
+    private static final String UPDATE_QUERY_STRING = "UPDATE %s.%s SET %s WHERE %s = ?";
+    private static final String DELETE_QUERY_STRING = "DELETE FROM %s.%s WHERE %s = ?";
+    private static final String VERSION_CHECK_STRING = " AND %s = ?";
+    private static final String BY_ID_STRING = " WHERE %s = ?";
+    private static final String BY_IDS_STRING = " WHERE %s IN (%s)";
+
+    private final String dbName;
+    private final String tableName;
+    private final String pkColumnName;
+    private final String versionCheck;
+    private final String select;
+    private final String selectById;
+    private final String insert;
+    private final String update;
+    private final String delete;
+    private final String insertRow;
+    private final Dialect dialect;
+    private final List<String> upsertColumns;
+    private final List<String> upsertUpdateColumns;
+    private final Map<Integer, String> upserts;
+    private final Map<Integer, String> multiRowInserts;
+    private final Map<List<ColumnMetadata>, String> partialUpdates;
+    private final Map<Integer, String> selectsByIds;
+
+    EntityQueries(String dbName, EntityMetadata metadata, Dialect dialect) {
+        this.dbName = dbName;
+        this.tableName = metadata.getTableName();
+        this.pkColumnName = metadata.getPrimaryKey().getName();
+        //updates of a versioned entity only match the row version they were read with
+        ColumnMetadata version = metadata.getVersion();
+        this.versionCheck = version == null ? "" : String.format(VERSION_CHECK_STRING, version.getName());
+
+        List<String> allColumns = new ArrayList<>();
+        for (ColumnMetadata column : metadata.getColumns()) {
+            allColumns.add(column.getName());
+        }
+
+        List<String> columns = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        for (ColumnMetadata column : metadata.getInsertColumns()) {
+            columns.add(column.getName());
+            placeholders.add("?");
+        }
+
+        List<String> assignments = new ArrayList<>();
+        List<String> nonKeyColumns = new ArrayList<>();
+        for (ColumnMetadata column : metadata.getNonKeyColumns()) {
+            assignments.add(column.getName() + " = ?");
+            nonKeyColumns.add(column.getName());
+        }
+
+        this.select = String.format(SELECT_QUERY_STRING, String.join(", ", allColumns), dbName, this.tableName);
+        this.selectById = this.select + String.format(BY_ID_STRING, this.pkColumnName);
+        this.insert = String.format(INSERT_QUERY_STRING,
+                dbName, this.tableName, String.join(", ", columns), String.join(", ", placeholders));
+        this.update = String.format(UPDATE_QUERY_STRING,
+                dbName, this.tableName, String.join(", ", assignments), this.pkColumnName) + this.versionCheck;
+        this.delete = String.format(DELETE_QUERY_STRING, dbName, this.tableName, this.pkColumnName);
+        this.insertRow = "(" + String.join(", ", placeholders) + ")";
+        this.multiRowInserts = new ConcurrentHashMap<>();
+        this.dialect = dialect;
+        this.upsertColumns = allColumns;
+        this.upsertUpdateColumns = nonKeyColumns;
+        this.upserts = new ConcurrentHashMap<>();
+        this.partialUpdates = new ConcurrentHashMap<>();
+        this.selectsByIds = new ConcurrentHashMap<>();
+    }
+
+    String select() {
+        return this.select;
+    }
+
+    String select(String where) {
+        if (where.trim().isEmpty()) {
+            return this.select;
+        }
+        return this.select + " WHERE " + where;
+    }
+
+    String selectById() {
+        return this.selectById;
+    }
+
+    String selectByIds(int count) {
+        return this.selectsByIds.computeIfAbsent(count,
+                n -> this.select + String.format(BY_IDS_STRING, this.pkColumnName, String.join(", ", Collections.nCopies(n, "?"))));
+    }
+
+    String insert() {
+        return this.insert;
+    }
+
+    //INSERT with one VALUES group per row, cached per row count (bounded by the batch size)
+    String insert(int rows) {
+        if (rows == 1) {
+            return this.insert;
+        }
+
+        return this.multiRowInserts.computeIfAbsent(rows, n -> {
+            StringBuilder sb = new StringBuilder(this.insert);
+            for (int i = 1; i < n; i++) {
+                sb.append(", ").append(this.insertRow);
+            }
+            return sb.toString();
+        });
+    }
+
+    //insert-or-update by primary key of all columns, one VALUES group per row, cached per row count
+    String upsert(int rows) {
+        return this.upserts.computeIfAbsent(rows, n -> this.dialect.upsert(
+                this.dbName + "." + this.tableName, this.upsertColumns, this.pkColumnName, this.upsertUpdateColumns, n));
+    }
+
+    String update() {
+        return this.update;
+    }
+
+    //UPDATE of the given columns only, cached per column set
+    String update(List<ColumnMetadata> columns) {
+        return this.partialUpdates.computeIfAbsent(columns, cols -> {
+            List<String> assignments = new ArrayList<>();
+            for (ColumnMetadata column : cols) {
+                assignments.add(column.getName() + " = ?");
+            }
+            return String.format(UPDATE_QUERY_STRING,
+                    this.dbName, this.tableName, String.join(", ", assignments), this.pkColumnName) + this.versionCheck;
+        });
+    }
+
+    String delete() {
+        return this.delete;
+    }
+}
@@ -0,0 +1,115 @@
+package orm;
+
+import metadata.ColumnMetadata;
+import metadata.EntityMetadata;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.List;
+
+//columns are read by position, in the order they were selected
+final class HydrationPlans {
+
+    private static final MethodType SPREAD_CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    private HydrationPlans() {
+    }
+
+    static <E> RowMapper<E> of(EntityMetadata metadata, List<ColumnMetadata> columns, Class<E> resultType) {
+        if (resultType == metadata.getEntityClass()) {
+            return entity(metadata, columns);
+        }
+        return constructor(columns, resultType);
+    }
+
+    //entity with the selected columns set, the remaining fields keep their default values
+    static <E> RowMapper<E> entity(EntityMetadata metadata, List<ColumnMetadata> columns) {
+        ColumnMetadata[] plan = columns.toArray(new ColumnMetadata[0]);
+
+        return rs -> {
+            E entity = metadata.newInstance();
+            for (int i = 0; i < plan.length; i++) {
+                plan[i].readValue(entity, rs, i + 1);
+            }
+            return entity;
+        };
+    }
+
+    //entity read from the columns following the offset, null when its primary key is NULL
+    static <E> RowMapper<E> joined(EntityMetadata metadata, int offset) {
+        ColumnMetadata[] plan = metadata.getColumns().toArray(new ColumnMetadata[0]);
+        int keyIndex = metadata.getColumns().indexOf(metadata.getPrimaryKey());
+
+        return rs -> {
+            rs.getObject(offset + keyIndex + 1);
+            if (rs.wasNull()) {
+                return null;
+            }
+
+            E entity = metadata.newInstance();
+            for (int i = 0; i < plan.length; i++) {
+                plan[i].readValue(entity, rs, offset + i + 1);
+            }
+            return entity;
+        };
+    }
+
+    //instance created through the constructor whose parameter types match the selected columns in order
+    static <E> RowMapper<E> constructor(List<ColumnMetadata> columns, Class<E> resultType) {
+        ColumnMetadata[] plan = columns.toArray(new ColumnMetadata[0]);
+        MethodHandle handle = findConstructor(plan, resultType);
+
+        return rs -> {
+            Object[] args = new Object[plan.length];
+            for (int i = 0; i < plan.length; i++) {
+                args[i] = plan[i].getConverter().read(rs, i + 1);
+            }
+
+            try {
+                return resultType.cast((Object) handle.invokeExact(args));
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        };
+    }
+
+    private static MethodHandle findConstructor(ColumnMetadata[] columns, Class<?> resultType) {
+        for (Constructor<?> constructor : resultType.getDeclaredConstructors()) {
+            Class<?>[] parameterTypes = constructor.getParameterTypes();
+            if (parameterTypes.length != columns.length) {
+                continue;
+            }
+
+            boolean matches = true;
+            for (int i = 0; i < parameterTypes.length && matches; i++) {
+                matches = box(parameterTypes[i]).isAssignableFrom(box(columns[i].getJavaType()));
+            }
+            if (!matches) {
+                continue;
+            }
+
+            constructor.setAccessible(true);
+            try {
+                return MethodHandles.lookup().unreflectConstructor(constructor)
+                        .asSpreader(Object[].class, columns.length)
+                        .asType(SPREAD_CONSTRUCTOR_TYPE);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Cannot access constructor of " + resultType.getName(), e);
+            }
+        }
+
+        throw new IllegalArgumentException(String.format("%s has no constructor matching the %d selected columns",
+                resultType.getName(), columns.length));
+    }
+
+    private static Class<?> box(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        return MethodType.methodType(type).wrap().returnType();
+    }
+}
@@ -0,0 +1,28 @@
+package orm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class MySqlDialect implements Dialect {
+
+    private static final String UPSERT_QUERY = "INSERT INTO %s(%s) VALUES%s ON DUPLICATE KEY UPDATE %s";
+
+    @Override
+    public String upsert(String table, List<String> columns, String keyColumn, List<String> updateColumns, int rows) {
+        String row = "(" + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+
+        //VALUES(column) is deprecated by MySQL 8.0.20 in favour of a row alias, which MariaDB does not support
+        List<String> assignments = new ArrayList<>();
+        for (String column : updateColumns) {
+            assignments.add(column + " = VALUES(" + column + ")");
+        }
+        if (assignments.isEmpty()) {
+            //nothing to update, the existing row is kept as it is
+            assignments.add(keyColumn + " = " + keyColumn);
+        }
+
+        return String.format(UPSERT_QUERY,
+                table, String.join(", ", columns), String.join(", ", Collections.nCopies(rows, row)), String.join(", ", assignments));
+    }
+}
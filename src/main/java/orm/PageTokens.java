@@ -0,0 +1,45 @@
+package orm;
+
+import metadata.ColumnMetadata;
+
+import java.io.*;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+//tokens are parsed back by the column type converters, never deserialized into objects
+final class PageTokens {
+
+    private PageTokens() {
+    }
+
+    static String encode(String sortColumn, List<ColumnMetadata> keys, Object entity) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(sortColumn);
+            for (ColumnMetadata key : keys) {
+                out.writeUTF(key.getConverter().format(key.getValue(entity)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    static Object[] decode(String token, String sortColumn, List<ColumnMetadata> keys) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+            if (!in.readUTF().equals(sortColumn)) {
+                throw new IllegalArgumentException("Page token belongs to a different sort order");
+            }
+
+            Object[] values = new Object[keys.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = keys.get(i).getConverter().parse(in.readUTF());
+            }
+            return values;
+        } catch (IOException | IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid page token", e);
+        }
+    }
+}
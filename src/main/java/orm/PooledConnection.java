@@ -0,0 +1,161 @@
+package orm;
+
+import metrics.StatementListener;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+//closing it returns the connection to the pool
+class PooledConnection implements AutoCloseable {
+
+    private final ConnectionPool pool;
+    private final Connection connection;
+    private final Configuration configuration;
+    private StatementCache statementCache;
+    private Connection instrumented;
+    private StatementListener instrumentedFor;
+
+    private volatile long lastUsed;
+    private volatile long borrowedAt;
+    private volatile Throwable borrowSite;
+    private volatile boolean leakReported;
+    private int pins;
+    //isolation level and read-only mode to restore on return, set by transactions
+    private int restoreIsolation = -1;
+    private boolean restoreReadOnly;
+
+    PooledConnection(ConnectionPool pool, Connection connection, Configuration configuration) {
+        this.pool = pool;
+        this.connection = connection;
+        this.configuration = configuration;
+        this.lastUsed = System.currentTimeMillis();
+    }
+
+    //wrapped to report its statements while a statement listener is configured
+    Connection getConnection() {
+        StatementListener listener = this.configuration.getStatementListener();
+        if (listener == null) {
+            return this.connection;
+        }
+
+        if (this.instrumentedFor != listener) {
+            this.instrumented = StatementInstrumentation.wrap(this.connection, listener);
+            this.instrumentedFor = listener;
+        }
+        return this.instrumented;
+    }
+
+    StatementCache getStatementCache() {
+        if (this.statementCache == null) {
+            this.statementCache = new StatementCache(this.getConnection(), this.configuration.getStatementCacheSize());
+        }
+        return this.statementCache;
+    }
+
+    long getLastUsed() {
+        return this.lastUsed;
+    }
+
+    long getBorrowedAt() {
+        return this.borrowedAt;
+    }
+
+    Throwable getBorrowSite() {
+        return this.borrowSite;
+    }
+
+    boolean isLeakReported() {
+        return this.leakReported;
+    }
+
+    void markLeakReported() {
+        this.leakReported = true;
+    }
+
+    void onBorrow(boolean recordBorrowSite) {
+        this.borrowedAt = System.currentTimeMillis();
+        this.borrowSite = recordBorrowSite ? new Throwable("Connection acquired here") : null;
+        this.leakReported = false;
+    }
+
+    void onReturn() {
+        this.lastUsed = System.currentTimeMillis();
+        this.borrowSite = null;
+    }
+
+    //a pinned connection stays borrowed when closed, a transaction pins the connection it runs on
+    void pin() {
+        this.pins++;
+    }
+
+    void unpin() {
+        this.pins--;
+    }
+
+    void setTransactionIsolation(int level) throws SQLException {
+        int current = this.connection.getTransactionIsolation();
+        if (current != level) {
+            if (this.restoreIsolation == -1) {
+                this.restoreIsolation = current;
+            }
+            this.connection.setTransactionIsolation(level);
+        }
+    }
+
+    void setReadOnly() throws SQLException {
+        if (!this.connection.isReadOnly()) {
+            this.restoreReadOnly = true;
+            this.connection.setReadOnly(true);
+        }
+    }
+
+    /*
+    Rolls back and restores auto-commit if the borrower left a transaction open, and restores the isolation
+    level and read-only mode a transaction changed. False if that failed.
+    */
+    boolean reset() {
+        try {
+            if (!this.connection.getAutoCommit()) {
+                this.connection.rollback();
+                this.connection.setAutoCommit(true);
+            }
+            if (this.restoreReadOnly) {
+                this.connection.setReadOnly(false);
+                this.restoreReadOnly = false;
+            }
+            if (this.restoreIsolation != -1) {
+                this.connection.setTransactionIsolation(this.restoreIsolation);
+                this.restoreIsolation = -1;
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    boolean isValid(int timeoutSeconds) {
+        try {
+            return this.connection.isValid(timeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    void closePhysical() {
+        if (this.statementCache != null) {
+            this.statementCache.close();
+        }
+        try {
+            this.connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    @Override
+    public void close() {
+        if (this.pins > 0) {
+            return;
+        }
+        this.pool.release(this);
+    }
+}
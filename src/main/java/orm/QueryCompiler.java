@@ -0,0 +1,401 @@
+package orm;
+
+import metadata.AssociationMetadata;
+import metadata.ColumnMetadata;
+import metadata.EntityMetadata;
+import metadata.MetadataRegistry;
+import query.Assignments;
+import query.Condition;
+import query.Criteria;
+import query.Order;
+import query.PageRequest;
+import query.Query;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class QueryCompiler {
+
+    private static final String SELECT_QUERY_STRING = "SELECT %s FROM %s.%s";
+    private static final String COUNT_QUERY_STRING = "SELECT COUNT(*) FROM %s.%s";
+    private static final String DELETE_QUERY_STRING = "DELETE FROM %s.%s";
+    private static final String UPDATE_QUERY_STRING = "UPDATE %s.%s SET %s";
+    private static final String CHUNK_BOUNDARY_STRING = " ORDER BY %s LIMIT 1 OFFSET ?";
+    private static final String JOIN_STRING = " LEFT JOIN %s.%s t1 ON %s = %s";
+    private static final String TIMESTAMP_VERSION = "CURRENT_TIMESTAMP(3)";
+    //MySQL accepts OFFSET only after a LIMIT
+    private static final long NO_LIMIT = Long.MAX_VALUE;
+
+    private final String dbName;
+    private final Map<Object, CompiledQuery> compiled;
+
+    QueryCompiler(String dbName) {
+        this.dbName = dbName;
+        this.compiled = new ConcurrentHashMap<>();
+    }
+
+    CompiledQuery compile(Query<?> query) {
+        return this.compiled.computeIfAbsent(query.shape(), shape -> this.doCompile(query, false));
+    }
+
+    //COUNT(*) of the rows matching the conditions, ordering and paging are ignored
+    CompiledQuery compileCount(Query<?> query) {
+        return this.compiled.computeIfAbsent(Arrays.asList("count", query.getEntityClass(), query.getCriteria().shape()),
+                shape -> this.doCompile(query, true));
+    }
+
+    /*
+    Keyset page: rows after the given key in (sort column, primary key) order, one row more than the page size
+    is fetched to tell whether another page follows. keys is the primary key alone when it is the sort column.
+    */
+    CompiledQuery compilePage(EntityMetadata metadata, PageRequest request, List<ColumnMetadata> keys) {
+        Object shape = Arrays.asList("page", metadata.getEntityClass(), request.getCriteria().shape(),
+                keys, request.isAscending(), request.getToken() != null);
+
+        return this.compiled.computeIfAbsent(shape, s -> {
+            StringBuilder sql = new StringBuilder(String.format(SELECT_QUERY_STRING,
+                    names(metadata.getColumns(), ""), this.dbName, metadata.getTableName()));
+            List<ColumnMetadata> parameters = new ArrayList<>();
+            sql.append(where(metadata, request.getCriteria(), parameters));
+
+            String comparison = request.isAscending() ? " > ?" : " < ?";
+            String direction = request.isAscending() ? " ASC" : " DESC";
+            ColumnMetadata primaryKey = metadata.getPrimaryKey();
+
+            if (request.getToken() != null) {
+                sql.append(parameters.isEmpty() ? " WHERE " : " AND ");
+                if (keys.size() == 1) {
+                    sql.append(primaryKey.getName()).append(comparison);
+                    parameters.add(primaryKey);
+                } else {
+                    ColumnMetadata sort = keys.get(0);
+                    sql.append("(").append(sort.getName()).append(comparison)
+                            .append(" OR (").append(sort.getName()).append(" = ? AND ")
+                            .append(primaryKey.getName()).append(comparison).append("))");
+                    parameters.add(sort);
+                    parameters.add(sort);
+                    parameters.add(primaryKey);
+                }
+            }
+
+            List<String> orders = new ArrayList<>();
+            for (ColumnMetadata key : keys) {
+                orders.add(key.getName() + direction);
+            }
+            sql.append(" ORDER BY ").append(String.join(", ", orders)).append(" LIMIT ?");
+
+            return new CompiledQuery(sql.toString(), metadata.getColumns(), parameters,
+                    HydrationPlans.entity(metadata, metadata.getColumns()), true, null, null);
+        });
+    }
+
+    /*
+    DELETE of the rows matching the criteria, or UPDATE when assignments is not null.
+    The bounds restrict the statement to a primary key range (pk > ? AND pk <= ?), for chunked execution.
+    Parameters are the assigned columns, then the criteria columns, then the bounds.
+    */
+    CompiledQuery compileBulk(EntityMetadata metadata, Assignments assignments, Criteria criteria, boolean lowerBound, boolean upperBound) {
+        Object shape = Arrays.asList(assignments == null ? "delete" : "update", metadata.getEntityClass(),
+                assignments == null ? null : assignments.shape(), criteria.shape(), lowerBound, upperBound);
+
+        return this.compiled.computeIfAbsent(shape, s -> {
+            List<ColumnMetadata> parameters = new ArrayList<>();
+            StringBuilder sql = new StringBuilder();
+
+            if (assignments == null) {
+                sql.append(String.format(DELETE_QUERY_STRING, this.dbName, metadata.getTableName()));
+            } else {
+                sql.append(String.format(UPDATE_QUERY_STRING, this.dbName, metadata.getTableName(), set(metadata, assignments, parameters)));
+            }
+
+            sql.append(where(metadata, criteria, parameters));
+            sql.append(range(metadata.getPrimaryKey(), !criteria.isEmpty(), lowerBound, upperBound, parameters));
+
+            return new CompiledQuery(sql.toString(), Collections.emptyList(), parameters, null, false, null, null);
+        });
+    }
+
+    //the matching primary key that closes a chunk of the given size, read after the previous chunk's bound
+    CompiledQuery compileChunkBoundary(EntityMetadata metadata, Criteria criteria, boolean lowerBound) {
+        Object shape = Arrays.asList("boundary", metadata.getEntityClass(), criteria.shape(), lowerBound);
+
+        return this.compiled.computeIfAbsent(shape, s -> {
+            ColumnMetadata primaryKey = metadata.getPrimaryKey();
+            List<ColumnMetadata> parameters = new ArrayList<>();
+
+            String sql = String.format(SELECT_QUERY_STRING, primaryKey.getName(), this.dbName, metadata.getTableName())
+                    + where(metadata, criteria, parameters)
+                    + range(primaryKey, !criteria.isEmpty(), lowerBound, false, parameters)
+                    + String.format(CHUNK_BOUNDARY_STRING, primaryKey.getName());
+
+            return new CompiledQuery(sql, Collections.singletonList(primaryKey), parameters, null, false, null, null);
+        });
+    }
+
+    private CompiledQuery doCompile(Query<?> query, boolean count) {
+        EntityMetadata metadata = MetadataRegistry.get(query.getEntityClass());
+        AssociationMetadata fetch = count ? null : fetchedAssociation(metadata, query);
+        //columns are qualified only when a join makes them ambiguous
+        String alias = fetch == null ? "" : "t0.";
+
+        List<ColumnMetadata> columns = new ArrayList<>();
+        if (query.getColumns().isEmpty()) {
+            columns.addAll(metadata.getColumns());
+        } else {
+            for (String name : query.getColumns()) {
+                columns.add(column(metadata, name));
+            }
+        }
+
+        StringBuilder sql = new StringBuilder();
+        if (count) {
+            sql.append(String.format(COUNT_QUERY_STRING, this.dbName, metadata.getTableName()));
+        } else if (fetch == null) {
+            sql.append(String.format(SELECT_QUERY_STRING, names(columns, ""), this.dbName, metadata.getTableName()));
+        } else {
+            EntityMetadata target = MetadataRegistry.get(fetch.getTargetClass());
+            String join = fetch.isCollection()
+                    ? String.format(JOIN_STRING, this.dbName, target.getTableName(), "t1." + fetch.getColumnName(), "t0." + metadata.getPrimaryKey().getName())
+                    : String.format(JOIN_STRING, this.dbName, target.getTableName(), "t0." + fetch.getColumnName(), "t1." + target.getPrimaryKey().getName());
+
+            sql.append(String.format(SELECT_QUERY_STRING, names(columns, "t0.") + ", " + names(target.getColumns(), "t1."),
+                    this.dbName, metadata.getTableName() + " t0")).append(join);
+        }
+
+        List<ColumnMetadata> parameters = new ArrayList<>();
+        sql.append(where(metadata, query.getCriteria(), parameters, alias));
+
+        if (!count) {
+            List<String> orders = new ArrayList<>();
+            for (Order order : query.getOrders()) {
+                orders.add(alias + column(metadata, order.getColumn()).getName() + (order.isAscending() ? " ASC" : " DESC"));
+            }
+            if (!orders.isEmpty()) {
+                sql.append(" ORDER BY ").append(String.join(", ", orders));
+            }
+            if (query.getLimit() != null || query.getOffset() != null) {
+                sql.append(" LIMIT ?");
+            }
+            if (query.getOffset() != null) {
+                sql.append(" OFFSET ?");
+            }
+        }
+
+        if (count) {
+            return new CompiledQuery(sql.toString(), columns, parameters, null, false, null, null);
+        }
+
+        boolean entities = query.getResultType() == metadata.getEntityClass();
+        RowMapper<?> fetchMapper = fetch == null ? null
+                : HydrationPlans.joined(MetadataRegistry.get(fetch.getTargetClass()), columns.size());
+
+        return new CompiledQuery(sql.toString(), columns, parameters,
+                HydrationPlans.of(metadata, columns, query.getResultType()),
+                entities && columns.size() == metadata.getColumns().size(), fetch, fetchMapper);
+    }
+
+    private static AssociationMetadata fetchedAssociation(EntityMetadata metadata, Query<?> query) {
+        if (query.getFetch() == null) {
+            return null;
+        }
+
+        AssociationMetadata association = metadata.getAssociation(query.getFetch());
+        if (association == null) {
+            throw new IllegalArgumentException(String.format("%s has no association %s",
+                    metadata.getEntityClass().getSimpleName(), query.getFetch()));
+        }
+        if (!query.getColumns().isEmpty() || query.getResultType() != metadata.getEntityClass()) {
+            throw new IllegalArgumentException("Fetch joins load whole entities and cannot be combined with projections");
+        }
+        if (association.isCollection() && (query.getLimit() != null || query.getOffset() != null)) {
+            throw new IllegalArgumentException("Collection fetch joins cannot be combined with limit or offset");
+        }
+        return association;
+    }
+
+    private static String names(List<ColumnMetadata> columns, String alias) {
+        List<String> names = new ArrayList<>();
+        for (ColumnMetadata column : columns) {
+            names.add(alias + column.getName());
+        }
+        return String.join(", ", names);
+    }
+
+    //SET clause, a @Version column that is not assigned explicitly moves on to a new version
+    private static String set(EntityMetadata metadata, Assignments assignments, List<ColumnMetadata> parameters) {
+        if (assignments.isEmpty()) {
+            throw new IllegalArgumentException("Bulk update requires at least one assignment");
+        }
+
+        List<String> set = new ArrayList<>();
+        for (String name : assignments.getValues().keySet()) {
+            ColumnMetadata column = column(metadata, name);
+            if (column.isPrimaryKey()) {
+                throw new IllegalArgumentException("Bulk updates cannot change the primary key " + name);
+            }
+            set.add(column.getName() + " = ?");
+            parameters.add(column);
+        }
+
+        ColumnMetadata version = metadata.getVersion();
+        if (version != null && !assignments.getValues().containsKey(version.getName())) {
+            set.add(ColumnMetadata.isIntegral(version.getJavaType())
+                    ? version.getName() + " = " + version.getName() + " + 1"
+                    : version.getName() + " = " + TIMESTAMP_VERSION);
+        }
+        return String.join(", ", set);
+    }
+
+    private static String range(ColumnMetadata primaryKey, boolean hasWhere, boolean lowerBound, boolean upperBound, List<ColumnMetadata> parameters) {
+        StringBuilder sql = new StringBuilder();
+        if (lowerBound) {
+            sql.append(hasWhere ? " AND " : " WHERE ").append(primaryKey.getName()).append(" > ?");
+            parameters.add(primaryKey);
+        }
+        if (upperBound) {
+            sql.append(hasWhere || lowerBound ? " AND " : " WHERE ").append(primaryKey.getName()).append(" <= ?");
+            parameters.add(primaryKey);
+        }
+        return sql.toString();
+    }
+
+    //WHERE clause of the criteria, or an empty string, the column of each placeholder is added to parameters
+    static String where(EntityMetadata metadata, Criteria criteria, List<ColumnMetadata> parameters) {
+        return where(metadata, criteria, parameters, "");
+    }
+
+    static String where(EntityMetadata metadata, Criteria criteria, List<ColumnMetadata> parameters, String alias) {
+        if (criteria.isEmpty()) {
+            return "";
+        }
+
+        List<String> conditions = new ArrayList<>();
+        for (Condition condition : criteria.getConditions()) {
+            ColumnMetadata column = column(metadata, condition.getColumn());
+            conditions.add(condition.getOperator().toSql(alias + column.getName(), condition.getValues().size()));
+
+            for (int i = 0; i < condition.getValues().size(); i++) {
+                parameters.add(column);
+            }
+        }
+
+        return " WHERE " + String.join(" AND ", conditions);
+    }
+
+    //binds the condition values through the converters of their columns, returns the next parameter index
+    static int bind(PreparedStatement stmt, Criteria criteria, List<ColumnMetadata> parameters, int offset) throws SQLException {
+        int paramIndex = offset;
+        for (Condition condition : criteria.getConditions()) {
+            for (Object value : condition.getValues()) {
+                ColumnMetadata column = parameters.get(paramIndex - offset);
+                column.getConverter().bind(stmt, ++paramIndex, value);
+            }
+        }
+        return paramIndex;
+    }
+
+    private static ColumnMetadata column(EntityMetadata metadata, String name) {
+        ColumnMetadata column = metadata.getColumn(name);
+        if (column == null) {
+            throw new IllegalArgumentException(String.format("%s has no column %s",
+                    metadata.getEntityClass().getSimpleName(), name));
+        }
+        return column;
+    }
+
+    static final class CompiledQuery {
+
+        private final String sql;
+        private final List<ColumnMetadata> columns;
+        private final List<ColumnMetadata> parameters;
+        private final RowMapper<?> mapper;
+        private final boolean complete;
+        private final AssociationMetadata fetch;
+        private final RowMapper<?> fetchMapper;
+
+        private CompiledQuery(String sql, List<ColumnMetadata> columns, List<ColumnMetadata> parameters,
+                              RowMapper<?> mapper, boolean complete, AssociationMetadata fetch, RowMapper<?> fetchMapper) {
+            this.sql = sql;
+            this.columns = columns;
+            this.parameters = parameters;
+            this.mapper = mapper;
+            this.complete = complete;
+            this.fetch = fetch;
+            this.fetchMapper = fetchMapper;
+        }
+
+        String getSql() {
+            return this.sql;
+        }
+
+        //selected columns in result set order
+        List<ColumnMetadata> getColumns() {
+            return this.columns;
+        }
+
+        //hydration plan of the selected columns into the result type, null for COUNT queries
+        <T> RowMapper<T> getMapper() {
+            return this.getMapper(this.mapper);
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> RowMapper<T> getMapper(RowMapper<?> mapper) {
+            return (RowMapper<T>) mapper;
+        }
+
+        //association joined into the result, or null
+        AssociationMetadata getFetch() {
+            return this.fetch;
+        }
+
+        //hydration plan of the joined entity, null when its key is NULL (no row to join)
+        RowMapper<Object> getFetchMapper() {
+            return this.getMapper(this.fetchMapper);
+        }
+
+        //true when whole entities are loaded, only those go to the second-level cache
+        boolean isComplete() {
+            return this.complete;
+        }
+
+        void bind(PreparedStatement stmt, Query<?> query) throws SQLException {
+            int paramIndex = this.bind(stmt, query.getCriteria());
+
+            if (query.getLimit() != null || query.getOffset() != null) {
+                stmt.setLong(++paramIndex, query.getLimit() != null ? query.getLimit() : NO_LIMIT);
+            }
+            if (query.getOffset() != null) {
+                stmt.setInt(++paramIndex, query.getOffset());
+            }
+        }
+
+        //binds the criteria values, returns the index of the last bound parameter
+        int bind(PreparedStatement stmt, Criteria criteria) throws SQLException {
+            return QueryCompiler.bind(stmt, criteria, this.parameters, 0);
+        }
+
+        //binds the criteria values from the given parameter index on, returns the index of the last bound parameter
+        int bind(PreparedStatement stmt, int paramIndex, Criteria criteria) throws SQLException {
+            for (Condition condition : criteria.getConditions()) {
+                for (Object value : condition.getValues()) {
+                    this.parameters.get(paramIndex).getConverter().bind(stmt, ++paramIndex, value);
+                }
+            }
+            return paramIndex;
+        }
+
+        //binds values to the parameters following the criteria ones, through the converters of their columns
+        int bind(PreparedStatement stmt, int paramIndex, Object... values) throws SQLException {
+            for (Object value : values) {
+                this.parameters.get(paramIndex).getConverter().bind(stmt, ++paramIndex, value);
+            }
+            return paramIndex;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package orm;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+interface RowMapper<T> {
+
+    T map(ResultSet rs) throws SQLException;
+}
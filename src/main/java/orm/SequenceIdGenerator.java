@@ -0,0 +1,113 @@
+package orm;
+
+import metadata.EntityMetadata;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+
+//blocks are reserved in a transaction of their own, so a rollback cannot hand one out twice
+final class SequenceIdGenerator {
+
+    static final String TABLE_NAME = "miniorm_sequences";
+
+    private static final String CREATE_QUERY = "CREATE TABLE IF NOT EXISTS %s." + TABLE_NAME +
+            "(name VARCHAR(64) NOT NULL PRIMARY KEY, next_value BIGINT NOT NULL)";
+    private static final String SELECT_QUERY = "SELECT next_value FROM %s." + TABLE_NAME + " WHERE name = ? FOR UPDATE";
+    private static final String INSERT_QUERY = "INSERT INTO %s." + TABLE_NAME + "(name, next_value) VALUES(?, ?)";
+    private static final String UPDATE_QUERY = "UPDATE %s." + TABLE_NAME + " SET next_value = ? WHERE name = ?";
+    private static final String MAX_KEY_QUERY = "SELECT COALESCE(MAX(%s), 0) + 1 FROM %s.%s";
+
+    private final ConnectionPool connectionPool;
+    private final String dbName;
+    private final String name;
+    private final int allocationSize;
+    private final String maxKeyQuery;
+    private boolean tableCreated;
+    private long next;
+    private long limit;
+
+    SequenceIdGenerator(ConnectionPool connectionPool, String dbName, String name, int allocationSize, EntityMetadata metadata) {
+        this.connectionPool = connectionPool;
+        this.dbName = dbName;
+        this.name = name;
+        this.allocationSize = allocationSize;
+        //a new sequence continues after the keys already in the table
+        this.maxKeyQuery = String.format(MAX_KEY_QUERY, metadata.getPrimaryKey().getName(), dbName, metadata.getTableName());
+    }
+
+    synchronized long next() throws SQLException {
+        if (this.next >= this.limit) {
+            this.next = this.reserve();
+            this.limit = this.next + this.allocationSize;
+        }
+        return this.next++;
+    }
+
+    //first ID of a newly reserved block
+    private long reserve() throws SQLException {
+        try (PooledConnection conn = this.connectionPool.acquire()) {
+            Connection connection = conn.getConnection();
+
+            if (!this.tableCreated) {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute(String.format(CREATE_QUERY, this.dbName));
+                }
+                this.tableCreated = true;
+            }
+
+            connection.setAutoCommit(false);
+            try {
+                long first = this.reserve(connection);
+                connection.commit();
+                return first;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private long reserve(Connection connection) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(String.format(SELECT_QUERY, this.dbName))) {
+            select.setString(1, this.name);
+            try (ResultSet rs = select.executeQuery()) {
+                if (rs.next()) {
+                    long first = rs.getLong(1);
+                    this.advance(connection, first + this.allocationSize);
+                    return first;
+                }
+            }
+        }
+
+        long first;
+        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(this.maxKeyQuery)) {
+            rs.next();
+            first = rs.getLong(1);
+        }
+
+        try (PreparedStatement insert = connection.prepareStatement(String.format(INSERT_QUERY, this.dbName))) {
+            insert.setString(1, this.name);
+            insert.setLong(2, first + this.allocationSize);
+            insert.executeUpdate();
+        } catch (SQLIntegrityConstraintViolationException e) {
+            //another process created the sequence first, reserve from its row instead
+            connection.rollback();
+            return this.reserve(connection);
+        }
+        return first;
+    }
+
+    private void advance(Connection connection, long nextValue) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement(String.format(UPDATE_QUERY, this.dbName))) {
+            update.setLong(1, nextValue);
+            update.setString(2, this.name);
+            update.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package orm;
+
+import metadata.ColumnMetadata;
+import metadata.EntityMetadata;
+import metadata.MetadataRegistry;
+
+import java.sql.SQLException;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+//identity map and dirty checking for a single thread, flush() writes the changes in one transaction
+public class Session implements AutoCloseable {
+
+    //snapshot of entities attached with persist(), every column is written on flush
+    private static final Object[] FULL_UPDATE = new Object[0];
+    //"column = 5" or "column = 'value'", answered from the identity map when the column is the primary key
+    private static final Pattern EQUALS_LITERAL = Pattern.compile("\\s*(\\w+)\\s*=\\s*(?:'([^']*)'|(-?\\d+))\\s*");
+
+    private final EntityManager entityManager;
+    private final Map<EntityKey, Object> identityMap;
+    private final Map<Object, Object[]> snapshots;
+    private final List<Object> pendingInserts;
+    private final Set<Object> pendingInsertSet;
+    private final List<Object> pendingDeletes;
+
+    Session(EntityManager entityManager) {
+        this.entityManager = entityManager;
+        this.identityMap = new HashMap<>();
+        this.snapshots = new IdentityHashMap<>();
+        this.pendingInserts = new ArrayList<>();
+        this.pendingInsertSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.pendingDeletes = new ArrayList<>();
+    }
+
+    public <E> E findById(Class<E> table, Object id) throws SQLException {
+        EntityMetadata metadata = MetadataRegistry.get(table);
+        Object managed = this.identityMap.get(key(metadata, table, id));
+        if (managed != null) {
+            return table.cast(managed);
+        }
+
+        E entity = this.entityManager.load(metadata, id);
+        return entity == null ? null : this.register(entity);
+    }
+
+    public <E> List<E> find(Class<E> table, String where) throws SQLException {
+        List<E> entities = this.entityManager.findList(table, where);
+
+        List<E> managed = new ArrayList<>(entities.size());
+        for (E entity : entities) {
+            managed.add(this.register(entity));
+        }
+
+        return managed;
+    }
+
+    public <E> E findFirst(Class<E> table, String where) throws SQLException {
+        EntityMetadata metadata = MetadataRegistry.get(table);
+        Object id = primaryKeyLiteral(metadata, where);
+        if (id != null) {
+            return this.findById(table, id);
+        }
+
+        E entity = this.entityManager.first(metadata, where);
+        return entity == null ? null : this.register(entity);
+    }
+
+    //new entities are inserted on flush, detached ones are attached and fully updated on flush
+    public <E> void persist(E entity) {
+        if (this.contains(entity)) {
+            return;
+        }
+
+        EntityMetadata metadata = MetadataRegistry.get(entity.getClass());
+        Object id = metadata.getPrimaryKey().getValue(entity);
+
+        if (EntityManager.isTransient(id)) {
+            this.pendingInserts.add(entity);
+            this.pendingInsertSet.add(entity);
+            return;
+        }
+
+        EntityKey key = key(metadata, entity.getClass(), id);
+        if (this.identityMap.containsKey(key)) {
+            throw new IllegalStateException("Another instance with the same primary key is already managed");
+        }
+
+        this.identityMap.put(key, entity);
+        this.snapshots.put(entity, FULL_UPDATE);
+    }
+
+    public <E> void delete(E entity) {
+        if (this.pendingInsertSet.remove(entity)) {
+            this.pendingInserts.removeIf(pending -> pending == entity);
+            return;
+        }
+
+        EntityMetadata metadata = MetadataRegistry.get(entity.getClass());
+        this.identityMap.remove(key(metadata, entity.getClass(), metadata.getPrimaryKey().getValue(entity)));
+        this.snapshots.remove(entity);
+        this.pendingDeletes.add(entity);
+    }
+
+    public boolean contains(Object entity) {
+        return this.snapshots.containsKey(entity) || this.pendingInsertSet.contains(entity);
+    }
+
+    public void flush() throws SQLException {
+        Map<Class<?>, List<Object>> inserts = groupByClass(this.pendingInserts);
+        Map<Class<?>, List<Object>> deletes = groupByClass(this.pendingDeletes);
+        Map<Class<?>, Map<List<ColumnMetadata>, List<Object>>> updates = this.collectDirtyEntities();
+
+        if (inserts.isEmpty() && deletes.isEmpty() && updates.isEmpty()) {
+            return;
+        }
+
+        this.entityManager.transactional(statements -> {
+            for (Map.Entry<Class<?>, List<Object>> group : inserts.entrySet()) {
+                this.entityManager.batchInsert(statements, MetadataRegistry.get(group.getKey()), group.getValue());
+            }
+
+            for (Map.Entry<Class<?>, Map<List<ColumnMetadata>, List<Object>>> group : updates.entrySet()) {
+                EntityMetadata metadata = MetadataRegistry.get(group.getKey());
+                for (Map.Entry<List<ColumnMetadata>, List<Object>> shape : group.getValue().entrySet()) {
+                    this.entityManager.batchUpdate(statements, metadata, shape.getKey(), shape.getValue());
+                }
+            }
+
+            for (Map.Entry<Class<?>, List<Object>> group : deletes.entrySet()) {
+                this.entityManager.batchDelete(statements, MetadataRegistry.get(group.getKey()), group.getValue());
+            }
+        });
+
+        for (Object entity : this.pendingInserts) {
+            this.register(entity);
+        }
+        for (Map<List<ColumnMetadata>, List<Object>> shapes : updates.values()) {
+            for (List<Object> entities : shapes.values()) {
+                for (Object entity : entities) {
+                    this.snapshots.put(entity, snapshot(MetadataRegistry.get(entity.getClass()), entity));
+                }
+            }
+        }
+
+        this.pendingInserts.clear();
+        this.pendingInsertSet.clear();
+        this.pendingDeletes.clear();
+    }
+
+    //detaches all entities and drops the pending changes
+    public void clear() {
+        this.identityMap.clear();
+        this.snapshots.clear();
+        this.pendingInserts.clear();
+        this.pendingInsertSet.clear();
+        this.pendingDeletes.clear();
+    }
+
+    @Override
+    public void close() {
+        this.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E> E register(E entity) {
+        EntityMetadata metadata = MetadataRegistry.get(entity.getClass());
+        EntityKey key = key(metadata, entity.getClass(), metadata.getPrimaryKey().getValue(entity));
+
+        Object managed = this.identityMap.putIfAbsent(key, entity);
+        if (managed != null) {
+            return (E) managed;
+        }
+
+        this.snapshots.put(entity, snapshot(metadata, entity));
+        return entity;
+    }
+
+    //keyed by the Java type of the primary key, so an id given as another number type finds the same entry
+    private static EntityKey key(EntityMetadata metadata, Class<?> type, Object id) {
+        return new EntityKey(type, metadata.getPrimaryKey().toJavaType(id));
+    }
+
+    //the primary key value of a "pk = literal" predicate, or null for any other predicate
+    private static Object primaryKeyLiteral(EntityMetadata metadata, String where) {
+        Matcher matcher = EQUALS_LITERAL.matcher(where);
+        ColumnMetadata primaryKey = metadata.getPrimaryKey();
+        if (!matcher.matches() || !matcher.group(1).equalsIgnoreCase(primaryKey.getName())) {
+            return null;
+        }
+
+        try {
+            return primaryKey.getConverter().parse(matcher.group(2) != null ? matcher.group(2) : matcher.group(3));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    //dirty entities grouped by class and by the set of changed columns, each group is one UPDATE shape
+    private Map<Class<?>, Map<List<ColumnMetadata>, List<Object>>> collectDirtyEntities() {
+        Map<Class<?>, Map<List<ColumnMetadata>, List<Object>>> updates = new LinkedHashMap<>();
+
+        for (Map.Entry<Object, Object[]> managed : this.snapshots.entrySet()) {
+            Object entity = managed.getKey();
+            EntityMetadata metadata = MetadataRegistry.get(entity.getClass());
+            List<ColumnMetadata> dirtyColumns = dirtyColumns(metadata, entity, managed.getValue());
+
+            if (!dirtyColumns.isEmpty()) {
+                updates.computeIfAbsent(entity.getClass(), c -> new LinkedHashMap<>())
+                        .computeIfAbsent(dirtyColumns, c -> new ArrayList<>())
+                        .add(entity);
+            }
+        }
+
+        return updates;
+    }
+
+    private static List<ColumnMetadata> dirtyColumns(EntityMetadata metadata, Object entity, Object[] snapshot) {
+        if (snapshot == FULL_UPDATE) {
+            return metadata.getNonKeyColumns();
+        }
+
+        List<ColumnMetadata> dirty = new ArrayList<>();
+        List<ColumnMetadata> columns = metadata.getColumns();
+        for (int i = 0; i < columns.size(); i++) {
+            ColumnMetadata column = columns.get(i);
+            if (!column.isPrimaryKey() && !Objects.deepEquals(snapshot[i], column.getValue(entity))) {
+                dirty.add(column);
+            }
+        }
+
+        return dirty;
+    }
+
+    private static Object[] snapshot(EntityMetadata metadata, Object entity) {
+        List<ColumnMetadata> columns = metadata.getColumns();
+        Object[] values = new Object[columns.size()];
+
+        for (int i = 0; i < values.length; i++) {
+            //dates and byte arrays are mutable, keep a copy so in-place changes are detected
+            values[i] = EntityCache.copy(columns.get(i).getValue(entity));
+        }
+
+        return values;
+    }
+
+    private static Map<Class<?>, List<Object>> groupByClass(List<Object> entities) {
+        Map<Class<?>, List<Object>> groups = new LinkedHashMap<>();
+        for (Object entity : entities) {
+            groups.computeIfAbsent(entity.getClass(), c -> new ArrayList<>()).add(entity);
+        }
+        return groups;
+    }
+}
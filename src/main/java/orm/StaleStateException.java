@@ -0,0 +1,20 @@
+package orm;
+
+import java.sql.SQLException;
+
+public class StaleStateException extends SQLException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient Object entity;
+
+    public StaleStateException(Object entity, Object id, Object version) {
+        super(String.format("%s with id %s was changed or deleted concurrently (expected version %s)",
+                entity.getClass().getSimpleName(), id, version));
+        this.entity = entity;
+    }
+
+    public Object getEntity() {
+        return this.entity;
+    }
+}
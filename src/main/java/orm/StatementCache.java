@@ -0,0 +1,91 @@
+package orm;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+//prepared statements of one connection, the least recently used is closed once over capacity
+class StatementCache implements AutoCloseable {
+
+    private final Connection connection;
+    private final LinkedHashMap<StatementKey, PreparedStatement> statements;
+
+    StatementCache(Connection connection, int capacity) {
+        this.connection = connection;
+        this.statements = new LinkedHashMap<StatementKey, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<StatementKey, PreparedStatement> eldest) {
+                if (this.size() > capacity) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    PreparedStatement prepare(String sql) throws SQLException {
+        return this.prepare(sql, false);
+    }
+
+    synchronized PreparedStatement prepare(String sql, boolean returnGeneratedKeys) throws SQLException {
+        StatementKey key = new StatementKey(sql, returnGeneratedKeys);
+
+        PreparedStatement stmt = this.statements.get(key);
+        if (stmt == null || stmt.isClosed()) {
+            stmt = this.connection.prepareStatement(sql,
+                    returnGeneratedKeys ? Statement.RETURN_GENERATED_KEYS : Statement.NO_GENERATED_KEYS);
+            this.statements.put(key, stmt);
+        } else {
+            stmt.clearParameters();
+        }
+
+        return stmt;
+    }
+
+    @Override
+    public synchronized void close() {
+        Iterator<PreparedStatement> iterator = this.statements.values().iterator();
+        while (iterator.hasNext()) {
+            closeQuietly(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    private static final class StatementKey {
+
+        private final String sql;
+        private final boolean returnGeneratedKeys;
+
+        StatementKey(String sql, boolean returnGeneratedKeys) {
+            this.sql = sql;
+            this.returnGeneratedKeys = returnGeneratedKeys;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof StatementKey)) {
+                return false;
+            }
+            StatementKey other = (StatementKey) o;
+            return this.returnGeneratedKeys == other.returnGeneratedKeys && this.sql.equals(other.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.sql, this.returnGeneratedKeys);
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException ignored) {
+        }
+    }
+}
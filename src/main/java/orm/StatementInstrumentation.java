@@ -0,0 +1,286 @@
+package orm;
+
+import metrics.Operation;
+import metrics.StatementEvent;
+import metrics.StatementListener;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+//a query is reported once its result set is closed
+final class StatementInstrumentation {
+
+    private static final Pattern TABLE_R = Pattern.compile(
+            "^\\s*(?:SELECT\\b.*?\\bFROM|INSERT\\s+INTO|UPDATE|DELETE\\s+FROM|(?:CREATE|ALTER)\\s+TABLE(?:\\s+IF\\s+NOT\\s+EXISTS)?)\\s+([\\w.`]+)",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private StatementInstrumentation() {
+    }
+
+    static Connection wrap(Connection connection, StatementListener listener) {
+        return proxy(Connection.class, new ConnectionHandler(connection, listener));
+    }
+
+    static String tableOf(String sql) {
+        Matcher matcher = TABLE_R.matcher(sql);
+        return matcher.find() ? matcher.group(1).replace("`", "") : null;
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(StatementInstrumentation.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+
+        private final Connection connection;
+        private final StatementListener listener;
+
+        ConnectionHandler(Connection connection, StatementListener listener) {
+            this.connection = connection;
+            this.listener = listener;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    PreparedStatement prepared = (PreparedStatement) StatementInstrumentation.invoke(this.connection, method, args);
+                    return proxy(PreparedStatement.class, new StatementHandler(prepared, (String) args[0], this.listener));
+                case "createStatement":
+                    Statement statement = (Statement) StatementInstrumentation.invoke(this.connection, method, args);
+                    return proxy(Statement.class, new StatementHandler(statement, null, this.listener));
+                case "unwrap":
+                    return ((Class<?>) args[0]).isInstance(this.connection) ? this.connection : this.connection.unwrap((Class<?>) args[0]);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return StatementInstrumentation.invoke(this.connection, method, args);
+            }
+        }
+    }
+
+    /*
+    Records the bind values of a prepared statement and times its executions.
+    Plain statements carry their SQL in the execute call instead.
+    */
+    private static final class StatementHandler implements InvocationHandler {
+
+        private static final Object[] NO_BINDS = new Object[0];
+
+        private final Statement statement;
+        private final StatementListener listener;
+        private final String sql;
+        private final String table;
+        private final Operation operation;
+        private Object[] binds = NO_BINDS;
+        private int bindCount;
+        private int batchSize;
+        private QueryHandler openQuery;
+
+        StatementHandler(Statement statement, String sql, StatementListener listener) {
+            this.statement = statement;
+            this.listener = listener;
+            this.sql = sql;
+            this.table = sql == null ? null : tableOf(sql);
+            this.operation = sql == null ? null : Operation.of(sql);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer
+                    && method.getDeclaringClass() == PreparedStatement.class) {
+                this.bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                return StatementInstrumentation.invoke(this.statement, method, args);
+            }
+
+            switch (name) {
+                case "clearParameters":
+                    this.binds = NO_BINDS;
+                    this.bindCount = 0;
+                    return StatementInstrumentation.invoke(this.statement, method, args);
+                case "addBatch":
+                    this.batchSize++;
+                    return StatementInstrumentation.invoke(this.statement, method, args);
+                case "clearBatch":
+                    this.batchSize = 0;
+                    return StatementInstrumentation.invoke(this.statement, method, args);
+                case "executeQuery":
+                    return this.executeQuery(proxy, method, args);
+                case "execute":
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                    return this.executeUpdate(method, args);
+                case "executeBatch":
+                case "executeLargeBatch":
+                    return this.executeBatch(method, args);
+                case "close":
+                    this.reportOpenQuery();
+                    return StatementInstrumentation.invoke(this.statement, method, args);
+                case "unwrap":
+                    return ((Class<?>) args[0]).isInstance(this.statement) ? this.statement : this.statement.unwrap((Class<?>) args[0]);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return StatementInstrumentation.invoke(this.statement, method, args);
+            }
+        }
+
+        private void bind(int index, Object value) {
+            if (index > this.binds.length) {
+                this.binds = Arrays.copyOf(this.binds, Math.max(index, this.binds.length * 2));
+            }
+            this.binds[index - 1] = value;
+            this.bindCount = Math.max(this.bindCount, index);
+        }
+
+        private Object[] currentBinds() {
+            return Arrays.copyOf(this.binds, this.bindCount);
+        }
+
+        private Object executeQuery(Object proxy, Method method, Object[] args) throws Throwable {
+            this.reportOpenQuery();
+
+            long start = System.nanoTime();
+            ResultSet rs = (ResultSet) StatementInstrumentation.invoke(this.statement, method, args);
+            long elapsed = System.nanoTime() - start;
+
+            this.openQuery = new QueryHandler(rs, this, sqlOf(args), elapsed, this.currentBinds());
+            return proxy(ResultSet.class, this.openQuery);
+        }
+
+        private Object executeUpdate(Method method, Object[] args) throws Throwable {
+            this.reportOpenQuery();
+
+            long start = System.nanoTime();
+            Object result = StatementInstrumentation.invoke(this.statement, method, args);
+            long elapsed = System.nanoTime() - start;
+
+            long rows = result instanceof Number ? ((Number) result).longValue() : Math.max(0, this.statement.getUpdateCount());
+            this.report(sqlOf(args), elapsed, rows, 0, this.currentBinds());
+            return result;
+        }
+
+        private Object executeBatch(Method method, Object[] args) throws Throwable {
+            this.reportOpenQuery();
+
+            int size = this.batchSize;
+            this.batchSize = 0;
+
+            long start = System.nanoTime();
+            Object result = StatementInstrumentation.invoke(this.statement, method, args);
+            long elapsed = System.nanoTime() - start;
+
+            long rows = 0;
+            if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    //SUCCESS_NO_INFO, reported by drivers that rewrite batches
+                    rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(0, count);
+                }
+            } else if (result instanceof long[]) {
+                for (long count : (long[]) result) {
+                    rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(0, count);
+                }
+            }
+
+            this.report(this.sql, elapsed, rows, size, this.currentBinds());
+            return result;
+        }
+
+        private String sqlOf(Object[] args) {
+            return this.sql != null || args == null || args.length == 0 ? this.sql : (String) args[0];
+        }
+
+        //a query left open is reported once its statement is reused or closed
+        private void reportOpenQuery() {
+            if (this.openQuery != null) {
+                this.openQuery.report();
+            }
+        }
+
+        private void report(String sql, long elapsedNanos, long rows, int batchSize, Object[] binds) {
+            if (sql == null) {
+                return;
+            }
+
+            String table = sql == this.sql ? this.table : tableOf(sql);
+            Operation operation = sql == this.sql ? this.operation : Operation.of(sql);
+            this.listener.onStatement(new StatementEvent(table, operation, sql, elapsedNanos, rows, batchSize, binds));
+        }
+    }
+
+    private static final class QueryHandler implements InvocationHandler {
+
+        private final ResultSet rs;
+        private final StatementHandler statement;
+        private final String sql;
+        private final long elapsedNanos;
+        private final Object[] binds;
+        private long rows;
+        private boolean reported;
+
+        QueryHandler(ResultSet rs, StatementHandler statement, String sql, long elapsedNanos, Object[] binds) {
+            this.rs = rs;
+            this.statement = statement;
+            this.sql = sql;
+            this.elapsedNanos = elapsedNanos;
+            this.binds = binds;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next":
+                    Object next = StatementInstrumentation.invoke(this.rs, method, args);
+                    if ((Boolean) next) {
+                        this.rows++;
+                    }
+                    return next;
+                case "close":
+                    this.report();
+                    return StatementInstrumentation.invoke(this.rs, method, args);
+                case "unwrap":
+                    return ((Class<?>) args[0]).isInstance(this.rs) ? this.rs : this.rs.unwrap((Class<?>) args[0]);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return StatementInstrumentation.invoke(this.rs, method, args);
+            }
+        }
+
+        void report() {
+            if (this.reported) {
+                return;
+            }
+            this.reported = true;
+            if (this.statement.openQuery == this) {
+                this.statement.openQuery = null;
+            }
+            this.statement.report(this.sql, this.elapsedNanos, this.rows, 0, this.binds);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package orm;
+
+import metadata.EntityMetadata;
+import metadata.MetadataRegistry;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+//writes are queued and sent as batches before the next read and on commit, nested transactions use savepoints
+public class Transaction implements AutoCloseable {
+
+    private final EntityManager entityManager;
+    private final PooledConnection connection;
+    private final Transaction parent;
+    private final Savepoint savepoint;
+    private final List<WriteRun> pendingWrites;
+    private final Set<Object> queued;
+    private final List<Runnable> afterCommit;
+    private final boolean restoreAutoCommit;
+    private boolean active;
+
+    //top level transaction on the given connection
+    Transaction(EntityManager entityManager, PooledConnection connection, Isolation isolation, boolean readOnly) throws SQLException {
+        Connection jdbc = connection.getConnection();
+
+        this.entityManager = entityManager;
+        this.connection = connection;
+        this.parent = null;
+        this.savepoint = null;
+        this.pendingWrites = new ArrayList<>();
+        this.queued = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.afterCommit = new ArrayList<>();
+        this.restoreAutoCommit = jdbc.getAutoCommit();
+
+        //the pool restores the isolation and read-only mode when the connection is returned
+        if (isolation != Isolation.DEFAULT) {
+            connection.setTransactionIsolation(isolation.getLevel());
+        }
+        if (readOnly) {
+            connection.setReadOnly();
+        }
+        jdbc.setAutoCommit(false);
+
+        connection.pin();
+        this.active = true;
+    }
+
+    //nested transaction, its writes are rolled back to the savepoint set when it began
+    Transaction(Transaction parent) throws SQLException {
+        parent.flush();
+
+        this.entityManager = parent.entityManager;
+        this.connection = parent.connection;
+        this.parent = parent;
+        this.savepoint = parent.connection.getConnection().setSavepoint();
+        this.pendingWrites = parent.pendingWrites;
+        this.queued = parent.queued;
+        this.afterCommit = parent.afterCommit;
+        this.restoreAutoCommit = false;
+        this.active = true;
+    }
+
+    public void commit() throws SQLException {
+        this.checkActive();
+        this.flush();
+
+        if (this.parent == null) {
+            this.connection.getConnection().commit();
+        } else {
+            this.connection.getConnection().releaseSavepoint(this.savepoint);
+        }
+        this.end();
+
+        if (this.parent == null) {
+            for (Runnable action : this.afterCommit) {
+                action.run();
+            }
+        }
+    }
+
+    public void rollback() throws SQLException {
+        this.checkActive();
+        //queued writes were issued after the last flush, so after the savepoint of a nested transaction
+        this.pendingWrites.clear();
+        this.queued.clear();
+
+        try {
+            if (this.parent == null) {
+                this.afterCommit.clear();
+                this.connection.getConnection().rollback();
+            } else {
+                this.connection.getConnection().rollback(this.savepoint);
+            }
+        } finally {
+            this.end();
+        }
+    }
+
+    //savepoint inside this transaction, queued writes are flushed first so the savepoint covers them
+    public Savepoint setSavepoint(String name) throws SQLException {
+        this.checkActive();
+        this.flush();
+        return this.connection.getConnection().setSavepoint(name);
+    }
+
+    public void rollbackTo(Savepoint savepoint) throws SQLException {
+        this.checkActive();
+        this.pendingWrites.clear();
+        this.queued.clear();
+        this.connection.getConnection().rollback(savepoint);
+    }
+
+    public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+        this.checkActive();
+        this.connection.getConnection().releaseSavepoint(savepoint);
+    }
+
+    //executes the queued writes without committing
+    public void flush() throws SQLException {
+        if (this.pendingWrites.isEmpty()) {
+            return;
+        }
+
+        List<WriteRun> runs = new ArrayList<>(this.pendingWrites);
+        this.pendingWrites.clear();
+        this.queued.clear();
+
+        StatementCache statements = this.connection.getStatementCache();
+        for (WriteRun run : runs) {
+            EntityMetadata metadata = MetadataRegistry.get(run.type);
+            switch (run.kind) {
+                case INSERT:
+                    this.entityManager.batchInsert(statements, metadata, run.entities);
+                    break;
+                case UPDATE:
+                    this.entityManager.batchUpdate(statements, metadata, metadata.getNonKeyColumns(), run.entities);
+                    break;
+                case UPSERT:
+                    this.entityManager.batchUpsert(statements, metadata, run.entities);
+                    break;
+                default:
+                    this.entityManager.batchDelete(statements, metadata, run.entities);
+            }
+        }
+    }
+
+    public boolean isActive() {
+        return this.active;
+    }
+
+    public boolean isNested() {
+        return this.parent != null;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (this.active) {
+            this.rollback();
+        }
+    }
+
+    PooledConnection getConnection() {
+        return this.connection;
+    }
+
+    Transaction getParent() {
+        return this.parent;
+    }
+
+    /*
+    Runs the action once the top level transaction commits. Cache entries are evicted again then, a reader
+    outside the transaction may have cached the old row between the flush and the commit.
+    */
+    void afterCommit(Runnable action) {
+        this.afterCommit.add(action);
+    }
+
+    void queueInsert(Object entity) {
+        //an entity queued for insert is written with its state at flush time, so later persists add nothing
+        if (this.queued.add(entity)) {
+            this.queue(WriteKind.INSERT, entity);
+        }
+    }
+
+    void queueUpdate(Object entity) {
+        if (this.queued.add(entity)) {
+            this.queue(WriteKind.UPDATE, entity);
+        }
+    }
+
+    void queueUpsert(Object entity) {
+        if (this.queued.add(entity)) {
+            this.queue(WriteKind.UPSERT, entity);
+        }
+    }
+
+    void queueDelete(Object entity) {
+        this.queue(WriteKind.DELETE, entity);
+    }
+
+    //consecutive writes of the same kind and entity class share one batch
+    private void queue(WriteKind kind, Object entity) {
+        this.checkActive();
+
+        WriteRun last = this.pendingWrites.isEmpty() ? null : this.pendingWrites.get(this.pendingWrites.size() - 1);
+        if (last == null || last.kind != kind || last.type != entity.getClass()) {
+            last = new WriteRun(kind, entity.getClass());
+            this.pendingWrites.add(last);
+        }
+        last.entities.add(entity);
+    }
+
+    private void checkActive() {
+        if (!this.active) {
+            throw new IllegalStateException("Transaction is not active");
+        }
+    }
+
+    private void end() throws SQLException {
+        this.active = false;
+        this.entityManager.unbind(this);
+
+        if (this.parent != null) {
+            return;
+        }
+
+        try {
+            this.connection.getConnection().setAutoCommit(this.restoreAutoCommit);
+        } finally {
+            this.connection.unpin();
+            this.connection.close();
+        }
+    }
+
+    private enum WriteKind {
+        INSERT, UPDATE, UPSERT, DELETE
+    }
+
+    private static final class WriteRun {
+
+        private final WriteKind kind;
+        private final Class<?> type;
+        private final List<Object> entities;
+
+        private WriteRun(WriteKind kind, Class<?> type) {
+            this.kind = kind;
+            this.type = type;
+            this.entities = new ArrayList<>();
+        }
+    }
+}
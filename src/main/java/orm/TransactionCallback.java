@@ -0,0 +1,6 @@
+package orm;
+
+public interface TransactionCallback<T> {
+
+    T execute() throws Exception;
+}
@@ -0,0 +1,41 @@
+package query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public final class Assignments {
+
+    private final Map<String, Object> values = new LinkedHashMap<>();
+
+    private Assignments() {
+    }
+
+    public static Assignments set(String column, Object value) {
+        return new Assignments().and(column, value);
+    }
+
+    //null values set the column to NULL
+    public Assignments and(String column, Object value) {
+        if (this.values.containsKey(column)) {
+            throw new IllegalArgumentException("Column " + column + " is assigned twice");
+        }
+        this.values.put(column, value);
+        return this;
+    }
+
+    //values by column name, in assignment order
+    public Map<String, Object> getValues() {
+        return Collections.unmodifiableMap(this.values);
+    }
+
+    public boolean isEmpty() {
+        return this.values.isEmpty();
+    }
+
+    //structural key of the assignments, equal for assignments that compile to the same SQL
+    public Object shape() {
+        return new ArrayList<>(this.values.keySet());
+    }
+}
@@ -0,0 +1,38 @@
+package query;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public final class Condition {
+
+    private final String column;
+    private final Operator operator;
+    private final List<Object> values;
+
+    Condition(String column, Operator operator, List<Object> values) {
+        this.column = column;
+        this.operator = operator;
+        this.values = Collections.unmodifiableList(values);
+    }
+
+    public String getColumn() {
+        return this.column;
+    }
+
+    public Operator getOperator() {
+        return this.operator;
+    }
+
+    /*
+    Values bound for this condition, in placeholder order. IN lists are padded by repeating their last value
+    up to the next power of two, so lists of similar length share one SQL template.
+    */
+    public List<Object> getValues() {
+        return this.values;
+    }
+
+    Object shape() {
+        return Arrays.asList(this.column, this.operator, this.values.size());
+    }
+}
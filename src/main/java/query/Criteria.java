@@ -0,0 +1,52 @@
+package query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public final class Criteria {
+
+    private final List<Condition> conditions = new ArrayList<>();
+
+    private Criteria() {
+    }
+
+    public static Criteria empty() {
+        return new Criteria();
+    }
+
+    public static Restriction<Criteria> where(String column) {
+        return new Criteria().and(column);
+    }
+
+    public Restriction<Criteria> and(String column) {
+        return new Restriction<>(column, this::add);
+    }
+
+    public Criteria and(Criteria other) {
+        this.conditions.addAll(other.conditions);
+        return this;
+    }
+
+    Criteria add(Condition condition) {
+        this.conditions.add(condition);
+        return this;
+    }
+
+    public List<Condition> getConditions() {
+        return Collections.unmodifiableList(this.conditions);
+    }
+
+    public boolean isEmpty() {
+        return this.conditions.isEmpty();
+    }
+
+    //structural key of the conditions, equal for criteria that compile to the same SQL
+    public Object shape() {
+        List<Object> shape = new ArrayList<>(this.conditions.size());
+        for (Condition condition : this.conditions) {
+            shape.add(condition.shape());
+        }
+        return shape;
+    }
+}
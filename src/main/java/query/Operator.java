@@ -0,0 +1,34 @@
+package query;
+
+public enum Operator {
+    EQ("%s = ?"),
+    NE("%s <> ?"),
+    LT("%s < ?"),
+    LE("%s <= ?"),
+    GT("%s > ?"),
+    GE("%s >= ?"),
+    LIKE("%s LIKE ?"),
+    BETWEEN("%s BETWEEN ? AND ?"),
+    IN("%s IN (%s)"),
+    IS_NULL("%s IS NULL"),
+    IS_NOT_NULL("%s IS NOT NULL");
+
+    private final String template;
+
+    Operator(String template) {
+        this.template = template;
+    }
+
+    //SQL fragment for the column, IN expects the number of placeholders
+    public String toSql(String column, int bindCount) {
+        if (this == IN) {
+            StringBuilder placeholders = new StringBuilder("?");
+            for (int i = 1; i < bindCount; i++) {
+                placeholders.append(", ?");
+            }
+            return String.format(this.template, column, placeholders);
+        }
+
+        return String.format(this.template, column);
+    }
+}
@@ -0,0 +1,44 @@
+package query;
+
+import java.util.Objects;
+
+public final class Order {
+
+    private final String column;
+    private final boolean ascending;
+
+    private Order(String column, boolean ascending) {
+        this.column = column;
+        this.ascending = ascending;
+    }
+
+    public static Order asc(String column) {
+        return new Order(column, true);
+    }
+
+    public static Order desc(String column) {
+        return new Order(column, false);
+    }
+
+    public String getColumn() {
+        return this.column;
+    }
+
+    public boolean isAscending() {
+        return this.ascending;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Order)) {
+            return false;
+        }
+        Order other = (Order) o;
+        return this.ascending == other.ascending && this.column.equals(other.column);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.column, this.ascending);
+    }
+}
@@ -0,0 +1,39 @@
+package query;
+
+import java.util.Collections;
+import java.util.List;
+
+public final class Page<E> {
+
+    private final List<E> content;
+    private final PageRequest request;
+    private final String nextToken;
+
+    public Page(List<E> content, PageRequest request, String nextToken) {
+        this.content = Collections.unmodifiableList(content);
+        this.request = request;
+        this.nextToken = nextToken;
+    }
+
+    public List<E> getContent() {
+        return this.content;
+    }
+
+    public PageRequest getRequest() {
+        return this.request;
+    }
+
+    public boolean hasNext() {
+        return this.nextToken != null;
+    }
+
+    //opaque continuation token, null on the last page
+    public String getNextToken() {
+        return this.nextToken;
+    }
+
+    //request for the following page, null on the last page
+    public PageRequest next() {
+        return this.nextToken == null ? null : this.request.after(this.nextToken);
+    }
+}
@@ -0,0 +1,66 @@
+package query;
+
+//keyset pagination, ties are broken by the primary key, the sort column should not contain NULLs
+public final class PageRequest {
+
+    private final int size;
+    private final String sortColumn;
+    private final boolean ascending;
+    private final Criteria criteria;
+    private final String token;
+
+    private PageRequest(int size, String sortColumn, boolean ascending, Criteria criteria, String token) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        this.size = size;
+        this.sortColumn = sortColumn;
+        this.ascending = ascending;
+        this.criteria = criteria;
+        this.token = token;
+    }
+
+    //first page of the given size, ordered by the primary key
+    public static PageRequest of(int size) {
+        return new PageRequest(size, null, true, Criteria.empty(), null);
+    }
+
+    public PageRequest sortBy(String column) {
+        return new PageRequest(this.size, column, this.ascending, this.criteria, this.token);
+    }
+
+    public PageRequest descending() {
+        return new PageRequest(this.size, this.sortColumn, false, this.criteria, this.token);
+    }
+
+    public PageRequest where(Criteria criteria) {
+        return new PageRequest(this.size, this.sortColumn, this.ascending, criteria, this.token);
+    }
+
+    //continues after the page that returned the token, see Page.getNextToken()
+    public PageRequest after(String token) {
+        return new PageRequest(this.size, this.sortColumn, this.ascending, this.criteria, token);
+    }
+
+    public int getSize() {
+        return this.size;
+    }
+
+    //null for the primary key
+    public String getSortColumn() {
+        return this.sortColumn;
+    }
+
+    public boolean isAscending() {
+        return this.ascending;
+    }
+
+    public Criteria getCriteria() {
+        return this.criteria;
+    }
+
+    //null for the first page
+    public String getToken() {
+        return this.token;
+    }
+}
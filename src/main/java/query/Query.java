@@ -0,0 +1,164 @@
+package query;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+//queries of the same shape share one cached SQL template and hydration plan
+public class Query<E> {
+
+    private final Class<?> entityClass;
+    private final Class<E> resultType;
+    private final QueryExecutor executor;
+    private final Criteria criteria;
+    private final List<Order> orders;
+    private List<String> columns;
+    private String fetch;
+    private Integer limit;
+    private Integer offset;
+
+    public Query(Class<E> entityClass, QueryExecutor executor) {
+        this(entityClass, entityClass, executor);
+    }
+
+    private Query(Class<?> entityClass, Class<E> resultType, QueryExecutor executor) {
+        this.entityClass = entityClass;
+        this.resultType = resultType;
+        this.executor = executor;
+        this.criteria = Criteria.empty();
+        this.orders = new ArrayList<>();
+        this.columns = Collections.emptyList();
+    }
+
+    public Restriction<Query<E>> where(String column) {
+        return this.and(column);
+    }
+
+    public Restriction<Query<E>> and(String column) {
+        return new Restriction<>(column, condition -> {
+            this.criteria.add(condition);
+            return this;
+        });
+    }
+
+    public Query<E> where(Criteria criteria) {
+        this.criteria.and(criteria);
+        return this;
+    }
+
+    //loads only the given columns, the other fields of the returned entities keep their default values
+    public Query<E> select(String... columns) {
+        this.columns = Arrays.asList(columns);
+        return this;
+    }
+
+    /*
+    Maps the selected columns into instances of the given type through its constructor whose parameters
+    match the selected columns in order, e.g. select("id", "user_name").as(UserName.class) with
+    UserName(int id, String name). Returns a copy of this query, this query is not changed.
+    */
+    public <P> Query<P> as(Class<P> type) {
+        Query<P> projection = new Query<>(this.entityClass, type, this.executor);
+        projection.criteria.and(this.criteria);
+        projection.orders.addAll(this.orders);
+        projection.columns = this.columns;
+        projection.fetch = this.fetch;
+        projection.limit = this.limit;
+        projection.offset = this.offset;
+        return projection;
+    }
+
+    /*
+    Loads the named @ManyToOne or @OneToMany association from the same result set through a LEFT JOIN,
+    instead of lazily. Only one association can be fetched per query, collection fetches cannot be
+    combined with limit() or offset() since those count joined rows.
+    */
+    public Query<E> fetch(String association) {
+        this.fetch = association;
+        return this;
+    }
+
+    public Query<E> orderBy(Order... orders) {
+        this.orders.addAll(Arrays.asList(orders));
+        return this;
+    }
+
+    public Query<E> limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    public Query<E> offset(int offset) {
+        this.offset = offset;
+        return this;
+    }
+
+    public List<E> list() throws SQLException {
+        return this.executor.list(this);
+    }
+
+    //null when no row matches
+    public E first() throws SQLException {
+        Integer limit = this.limit;
+        this.limit = 1;
+        try {
+            List<E> result = this.executor.list(this);
+            return result.isEmpty() ? null : result.get(0);
+        } finally {
+            this.limit = limit;
+        }
+    }
+
+    //lazily hydrated, must be closed like the streams of DBContext.stream()
+    public Stream<E> stream() throws SQLException {
+        return this.executor.stream(this);
+    }
+
+    public long count() throws SQLException {
+        return this.executor.count(this);
+    }
+
+    public Class<?> getEntityClass() {
+        return this.entityClass;
+    }
+
+    //the entity class, or the projection type given to as()
+    public Class<E> getResultType() {
+        return this.resultType;
+    }
+
+    public Criteria getCriteria() {
+        return this.criteria;
+    }
+
+    public List<Order> getOrders() {
+        return Collections.unmodifiableList(this.orders);
+    }
+
+    //projected columns, empty for all mapped columns
+    public List<String> getColumns() {
+        return this.columns;
+    }
+
+    //association loaded through a join, or null
+    public String getFetch() {
+        return this.fetch;
+    }
+
+    public Integer getLimit() {
+        return this.limit;
+    }
+
+    public Integer getOffset() {
+        return this.offset;
+    }
+
+    //structural key of the query, equal for queries that compile to the same SQL
+    public Object shape() {
+        return Arrays.asList(this.entityClass, this.resultType, this.columns, this.fetch,
+                this.criteria.shape(), this.orders, this.limit != null, this.offset != null);
+    }
+}
@@ -0,0 +1,14 @@
+package query;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface QueryExecutor {
+
+    <E> List<E> list(Query<E> query) throws SQLException;
+
+    <E> Stream<E> stream(Query<E> query) throws SQLException;
+
+    long count(Query<?> query) throws SQLException;
+}
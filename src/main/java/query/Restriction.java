@@ -0,0 +1,87 @@
+package query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+public final class Restriction<R> {
+
+    private final String column;
+    private final Function<Condition, R> target;
+
+    Restriction(String column, Function<Condition, R> target) {
+        this.column = column;
+        this.target = target;
+    }
+
+    public R eq(Object value) {
+        return this.add(Operator.EQ, value);
+    }
+
+    public R ne(Object value) {
+        return this.add(Operator.NE, value);
+    }
+
+    public R lt(Object value) {
+        return this.add(Operator.LT, value);
+    }
+
+    public R le(Object value) {
+        return this.add(Operator.LE, value);
+    }
+
+    public R gt(Object value) {
+        return this.add(Operator.GT, value);
+    }
+
+    public R ge(Object value) {
+        return this.add(Operator.GE, value);
+    }
+
+    public R like(String pattern) {
+        return this.add(Operator.LIKE, pattern);
+    }
+
+    public R between(Object from, Object to) {
+        return this.add(Operator.BETWEEN, from, to);
+    }
+
+    public R in(Collection<?> values) {
+        if (values.isEmpty()) {
+            throw new IllegalArgumentException("IN requires at least one value");
+        }
+
+        List<Object> padded = new ArrayList<>(values);
+        int size = Integer.highestOneBit(padded.size() * 2 - 1);
+        Object last = padded.get(padded.size() - 1);
+        while (padded.size() < size) {
+            padded.add(last);
+        }
+
+        return this.target.apply(new Condition(this.column, Operator.IN, padded));
+    }
+
+    public R in(Object... values) {
+        return this.in(Arrays.asList(values));
+    }
+
+    public R isNull() {
+        return this.target.apply(new Condition(this.column, Operator.IS_NULL, Collections.emptyList()));
+    }
+
+    public R isNotNull() {
+        return this.target.apply(new Condition(this.column, Operator.IS_NOT_NULL, Collections.emptyList()));
+    }
+
+    private R add(Operator operator, Object... values) {
+        for (Object value : values) {
+            if (value == null) {
+                throw new IllegalArgumentException("Use isNull() to compare " + this.column + " with NULL");
+            }
+        }
+        return this.target.apply(new Condition(this.column, operator, Arrays.asList(values)));
+    }
+}
@@ -1,90 +1,192 @@
 package strategies;
 
-import annotations.Column;
 import annotations.Entity;
-import annotations.PrimaryKey;
+import metadata.EntityMetadata;
+import metadata.MetadataRegistry;
+import processor.EntityIndexProcessor;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.lang.reflect.Field;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+//uses the build-time entity index when present, otherwise scans the class path
 public class ClassEntityScanner {
 
-    private static final String DIR_SEPARATOR = File.separator;
-    private static final Pattern PROJECT_DIRECTORY_R = Pattern.compile(".*classes" + DIR_SEPARATOR);
-    private static final Pattern DIRECTORY_SEPARATOR_R = Pattern.compile(DIR_SEPARATOR);
-    private static final Pattern FILE_EXTENSION_R = Pattern.compile("\\.class");
+    private static final String CLASS_EXTENSION = ".class";
+    private static final byte[] ENTITY_DESCRIPTOR = ("L" + Entity.class.getName().replace('.', '/') + ";")
+            .getBytes(StandardCharsets.ISO_8859_1);
 
     public ClassEntityScanner() {
     }
 
-    static Set<Class<?>> getEntities(String path) throws ClassNotFoundException {
-        Set<Class<?>> entities = new HashSet<>();
-        File directory = new File(path);
-        File[] files = directory.listFiles();
+    static Set<Class<?>> getEntities() throws ClassNotFoundException {
+        ClassLoader loader = getClassLoader();
+        Set<String> names = readIndex(loader);
+        if (names.isEmpty()) {
+            names = scanClassPath();
+        }
 
-        for (File file : files) {
-            if (file.isDirectory()) {
-                entities.addAll(getEntities(file.getPath()));
+        Set<Class<?>> entities = new LinkedHashSet<>();
+        for (String name : names) {
+            Class<?> entity = Class.forName(name, false, loader);
+            if (entity.isAnnotationPresent(Entity.class)) {
+                entities.add(entity);
             }
+        }
+
+        return entities;
+    }
 
-            if (file.getPath().endsWith(".class")) {
-                String className = file.getPath();
+    static EntityMetadata getMetadata(Class<?> entity) {
+        return MetadataRegistry.get(entity);
+    }
 
-                String classNamePath = getPackageNameFromPath(className);
+    private static ClassLoader getClassLoader() {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        return loader != null ? loader : ClassEntityScanner.class.getClassLoader();
+    }
 
-                Class<?> entity = Class.forName(classNamePath);
-                if (entity.isAnnotationPresent(Entity.class)) {
-                    entities.add(entity);
+    /*
+    Every jar or output directory compiled with the processor carries its own index, so all of them are merged.
+    */
+    private static Set<String> readIndex(ClassLoader loader) {
+        Set<String> names = new LinkedHashSet<>();
+        try {
+            Enumeration<URL> indexes = loader.getResources(EntityIndexProcessor.INDEX);
+            while (indexes.hasMoreElements()) {
+                try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(indexes.nextElement().openStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        line = line.trim();
+                        if (!line.isEmpty()) {
+                            names.add(line);
+                        }
+                    }
                 }
             }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + EntityIndexProcessor.INDEX, e);
         }
 
-        return entities;
+        return names;
     }
 
-    static Map<String, String> getColumns(Class<?> entity) {
-        Map<String, String> fieldNameAndType = new HashMap<>();
-        Field[] entityFields = entity.getDeclaredFields();
+    /*
+    Fallback for classes compiled without the processor. Class files are only loaded, never initialized,
+    and only when their constant pool mentions the @Entity descriptor.
+    */
+    private static Set<String> scanClassPath() {
+        List<String> roots = Arrays.asList(System.getProperty("java.class.path").split(File.pathSeparator));
+        Set<String> names = ConcurrentHashMap.newKeySet();
+
+        roots.parallelStream()
+                .filter(root -> !root.isEmpty())
+                .map(File::new)
+                .forEach(root -> {
+                    if (root.isDirectory()) {
+                        scanDirectory(root.toPath(), names);
+                    } else if (root.isFile() && root.getName().endsWith(".jar")) {
+                        scanJar(root, names);
+                    }
+                });
+
+        return names;
+    }
 
-        for (Field entityField : entityFields) {
-            entityField.setAccessible(true);
+    private static void scanDirectory(Path root, Set<String> names) {
+        List<Path> classFiles;
+        try (Stream<Path> files = Files.walk(root)) {
+            classFiles = files
+                    .filter(file -> file.toString().endsWith(CLASS_EXTENSION))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            return;
+        }
 
-            if (entityField.isAnnotationPresent(Column.class)) {
-                String fieldName = entityField.getAnnotation(Column.class).name();
-                String fieldType = entityField.getType().getSimpleName();
-                fieldNameAndType.put(fieldName, fieldType);
+        classFiles.parallelStream().forEach(file -> {
+            String name = toClassName(root.relativize(file).toString().replace(File.separatorChar, '/'));
+            if (name == null) {
+                return;
             }
+
+            try (InputStream in = Files.newInputStream(file)) {
+                if (mentionsEntity(in)) {
+                    names.add(name);
+                }
+            } catch (IOException ignored) {
+            }
+        });
+    }
+
+    private static void scanJar(File jar, Set<String> names) {
+        try (JarFile file = new JarFile(jar)) {
+            for (JarEntry entry : Collections.list(file.entries())) {
+                String name = toClassName(entry.getName());
+                if (name == null) {
+                    continue;
+                }
+
+                try (InputStream in = file.getInputStream(entry)) {
+                    if (mentionsEntity(in)) {
+                        names.add(name);
+                    }
+                }
+            }
+        } catch (IOException ignored) {
         }
-        return fieldNameAndType;
     }
 
-    static String getTableName(Class<?> entityClass) {
-        if (entityClass.isAnnotationPresent(Entity.class)) {
-            return entityClass.getAnnotation(Entity.class).name();
-        } else {
+    private static String toClassName(String path) {
+        if (!path.endsWith(CLASS_EXTENSION) || path.startsWith("META-INF/") || path.endsWith("module-info.class")
+                || path.endsWith("package-info.class")) {
             return null;
         }
+
+        return path.substring(0, path.length() - CLASS_EXTENSION.length()).replace('/', '.');
     }
 
-    static String getPrimaryKeyField(Class entity) {
-        Field[] fields = entity.getDeclaredFields();
-        for (Field field : fields) {
-            if (field.isAnnotationPresent(PrimaryKey.class)) return field.getAnnotation(Column.class).name();
+    private static boolean mentionsEntity(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
         }
 
-        throw new UnsupportedOperationException("Entity does not have primary key!");
+        return indexOf(out.toByteArray(), ENTITY_DESCRIPTOR) >= 0;
     }
 
-    private static String getPackageNameFromPath(String className) {
-        className = PROJECT_DIRECTORY_R.matcher(className).replaceFirst("");
-        className = FILE_EXTENSION_R.matcher(className).replaceFirst("");
-        className = DIRECTORY_SEPARATOR_R.matcher(className).replaceAll(".");
+    private static int indexOf(byte[] data, byte[] pattern) {
+        outer:
+        for (int i = 0; i <= data.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
 
-        return className;
+        return -1;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,13 @@
+package strategies;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public interface ConnectionSource {
+
+    void withConnection(ConnectionCallback callback) throws SQLException;
+
+    interface ConnectionCallback {
+        void execute(Connection connection) throws SQLException;
+    }
+}
@@ -0,0 +1,11 @@
+package strategies;
+
+public class NoneStrategy implements SchemaInitializationStrategy {
+
+    NoneStrategy() {
+    }
+
+    @Override
+    public void execute() {
+    }
+}
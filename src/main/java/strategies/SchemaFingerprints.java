@@ -0,0 +1,176 @@
+package strategies;
+
+import metadata.ColumnMetadata;
+import metadata.EntityMetadata;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+//SHA-256 of the sorted column definitions and the primary key of each table
+final class SchemaFingerprints {
+
+    static final String TABLE_NAME = "miniorm_schema";
+
+    private static final String CREATE_QUERY = "CREATE TABLE IF NOT EXISTS `%s`.`" + TABLE_NAME + "`(" +
+            "table_name VARCHAR(64) NOT NULL PRIMARY KEY, fingerprint CHAR(64) NOT NULL, definition TEXT NOT NULL)";
+    private static final String SELECT_QUERY = "SELECT table_name, fingerprint, definition FROM `%s`.`" + TABLE_NAME + "`";
+    private static final String DELETE_QUERY = "DELETE FROM `%s`.`" + TABLE_NAME + "`";
+    private static final String INSERT_QUERY = "INSERT INTO `%s`.`" + TABLE_NAME + "`(table_name, fingerprint, definition) VALUES (?, ?, ?)";
+    private static final String COLUMN_SEPARATOR = ";";
+    private static final String PRIMARY_KEY = " PRIMARY KEY";
+
+    private SchemaFingerprints() {
+    }
+
+    static String definition(EntityMetadata metadata) {
+        Map<String, String> columns = new TreeMap<>();
+        for (ColumnMetadata column : metadata.getColumns()) {
+            columns.put(column.getName(), TableCreator.columnType(column) + (column.isPrimaryKey() ? PRIMARY_KEY : ""));
+        }
+
+        List<String> parts = new ArrayList<>();
+        for (Map.Entry<String, String> column : columns.entrySet()) {
+            parts.add(column.getKey() + " " + column.getValue());
+        }
+
+        return String.join(COLUMN_SEPARATOR, parts);
+    }
+
+    static String fingerprint(String definition) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(definition.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    //stored definitions by table name, a missing fingerprint table throws
+    static Map<String, String[]> read(Connection connection, String dbName) throws SQLException {
+        Map<String, String[]> stored = new LinkedHashMap<>();
+
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(String.format(SELECT_QUERY, dbName))) {
+            while (rs.next()) {
+                stored.put(rs.getString(1), new String[]{rs.getString(2), rs.getString(3)});
+            }
+        }
+
+        return stored;
+    }
+
+    //replaces the stored fingerprints with those of the given entities in one transaction
+    static void write(Connection connection, String dbName, Collection<EntityMetadata> entities) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(String.format(CREATE_QUERY, dbName));
+
+            connection.setAutoCommit(false);
+            stmt.executeUpdate(String.format(DELETE_QUERY, dbName));
+
+            try (PreparedStatement insert = connection.prepareStatement(String.format(INSERT_QUERY, dbName))) {
+                for (EntityMetadata metadata : entities) {
+                    String definition = definition(metadata);
+                    insert.setString(1, metadata.getTableName());
+                    insert.setString(2, fingerprint(definition));
+                    insert.setString(3, definition);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+
+            connection.commit();
+        } catch (SQLException e) {
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+            }
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /*
+    Lists, table by table, how the entities differ from the stored definitions.
+    Empty when every table matches.
+    */
+    static List<String> diff(Collection<EntityMetadata> entities, Map<String, String[]> stored) {
+        List<String> report = new ArrayList<>();
+        Map<String, String[]> remaining = new LinkedHashMap<>(stored);
+
+        for (EntityMetadata metadata : entities) {
+            String tableName = metadata.getTableName();
+            String definition = definition(metadata);
+            String[] recorded = remaining.remove(tableName);
+
+            if (recorded == null) {
+                report.add("table " + tableName + ": not recorded");
+            } else if (!fingerprint(definition).equals(recorded[0])) {
+                report.addAll(diffColumns(tableName, parse(recorded[1]), parse(definition)));
+            }
+        }
+
+        for (String tableName : remaining.keySet()) {
+            report.add("table " + tableName + ": recorded but no longer mapped");
+        }
+
+        return report;
+    }
+
+    private static List<String> diffColumns(String tableName, Map<String, String> recorded, Map<String, String> current) {
+        List<String> report = new ArrayList<>();
+
+        for (Map.Entry<String, String> column : current.entrySet()) {
+            String old = recorded.get(column.getKey());
+            if (old == null) {
+                report.add("table " + tableName + ": + " + column.getKey() + " " + column.getValue());
+            } else if (!old.equals(column.getValue())) {
+                report.add("table " + tableName + ": ~ " + column.getKey() + " " + old + " -> " + column.getValue());
+            }
+        }
+
+        for (Map.Entry<String, String> column : recorded.entrySet()) {
+            if (!current.containsKey(column.getKey())) {
+                report.add("table " + tableName + ": - " + column.getKey() + " " + column.getValue());
+            }
+        }
+
+        if (report.isEmpty()) {
+            //same columns, the stored fingerprint itself is off
+            report.add("table " + tableName + ": fingerprint mismatch");
+        }
+
+        return report;
+    }
+
+    private static Map<String, String> parse(String definition) {
+        Map<String, String> columns = new TreeMap<>();
+        if (definition == null || definition.isEmpty()) {
+            return columns;
+        }
+
+        for (String column : definition.split(COLUMN_SEPARATOR)) {
+            int space = column.indexOf(' ');
+            columns.put(column.substring(0, space), column.substring(space + 1));
+        }
+
+        return columns;
+    }
+}
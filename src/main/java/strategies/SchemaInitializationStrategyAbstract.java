@@ -1,21 +1,92 @@
 package strategies;
 
-import java.sql.Connection;
+import metadata.EntityMetadata;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 abstract class SchemaInitializationStrategyAbstract implements SchemaInitializationStrategy {
 
-    protected Connection connection;
+    protected ConnectionSource connections;
     protected String dbName;
-    protected TableCreator tableCreator;
+    protected int parallelism;
 
-    SchemaInitializationStrategyAbstract(Connection connection, String dbName) {
-        this.connection = connection;
+    SchemaInitializationStrategyAbstract(ConnectionSource connections, String dbName, int parallelism) {
+        this.connections = connections;
         this.dbName = dbName;
-        this.tableCreator = new TableCreator(connection, dbName);
+        this.parallelism = Math.max(1, parallelism);
     }
 
     Set<Class<?>> scanForEntities() throws ClassNotFoundException {
-        return ClassEntityScanner.getEntities(System.getProperty("user.dir"));
+        return ClassEntityScanner.getEntities();
+    }
+
+    //stores the fingerprints of the synchronized tables, so later VALIDATE runs can skip the catalog
+    void recordFingerprints(Collection<Class<?>> entities) throws SQLException {
+        List<EntityMetadata> metadata = new ArrayList<>();
+        for (Class<?> entity : entities) {
+            metadata.add(ClassEntityScanner.getMetadata(entity));
+        }
+
+        this.connections.withConnection(connection -> SchemaFingerprints.write(connection, this.dbName, metadata));
+    }
+
+    /*
+    Runs the task for every entity, each on a connection of its own. Tables are independent,
+    so up to parallelism entities are processed at the same time. The first failure is rethrown.
+    */
+    void forEachEntity(Collection<Class<?>> entities, EntityTask task) throws SQLException {
+        int threads = Math.min(this.parallelism, entities.size());
+        if (threads <= 1) {
+            for (Class<?> entity : entities) {
+                this.connections.withConnection(connection -> task.execute(new TableCreator(connection, this.dbName), entity));
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "miniorm-schema");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Class<?> entity : entities) {
+                futures.add(executor.submit(() -> {
+                    this.connections.withConnection(connection -> task.execute(new TableCreator(connection, this.dbName), entity));
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted during schema initialization", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    interface EntityTask {
+        void execute(TableCreator tableCreator, Class<?> entity) throws SQLException;
     }
 }
@@ -2,7 +2,9 @@ package strategies;
 
 public enum Strategies {
     DROP_CREATE,
-    UPDATE;
+    UPDATE,
+    VALIDATE,
+    NONE;
 
     @Override
     public String toString() {
@@ -11,6 +13,10 @@ public enum Strategies {
                 return "update";
             case DROP_CREATE:
                 return "dropcreate";
+            case VALIDATE:
+                return "validate";
+            case NONE:
+                return "none";
             default:
                 throw new IllegalArgumentException("Non existing strategy.");
         }
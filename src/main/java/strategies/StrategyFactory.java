@@ -4,13 +4,23 @@ import java.sql.Connection;
 
 public class StrategyFactory {
 
+    //strategy running on the single given connection, tables are processed one after another
     public static SchemaInitializationStrategy getStrategy(Enum<Strategies> strategy, Connection connection, String dbName) {
+        return getStrategy(strategy, callback -> callback.execute(connection), dbName, 1);
+    }
+
+    //strategy borrowing its connections from the source, up to parallelism tables are processed at the same time
+    public static SchemaInitializationStrategy getStrategy(Enum<Strategies> strategy, ConnectionSource connections, String dbName, int parallelism) {
 
         switch (strategy.toString()) {
             case "update":
-                return new UpdateStrategy(connection, dbName);
+                return new UpdateStrategy(connections, dbName, parallelism);
             case "dropcreate":
-                return new DropCreateStrategy(connection, dbName);
+                return new DropCreateStrategy(connections, dbName, parallelism);
+            case "validate":
+                return new ValidateStrategy(connections, dbName, parallelism);
+            case "none":
+                return new NoneStrategy();
             default:
                 return null;
         }
@@ -1,12 +1,23 @@
 package strategies;
 
+import metadata.ColumnMetadata;
+import metadata.EntityMetadata;
+
 import java.sql.*;
 import java.util.*;
 
 class TableCreator {
 
-    private static final String CREATE_TABLE_QUERY = "CREATE TABLE IF NOT EXISTS %s.%s(%s)";
-    private static final String ALTER_TABLE_QUERY = "ALTER TABLE %s.%s %s;";
+    private static final String CREATE_TABLE_QUERY = "CREATE TABLE IF NOT EXISTS %s.%s(%s, PRIMARY KEY(%s))";
+    private static final String ALTER_TABLE_QUERY = "ALTER TABLE %s.%s %s";
+    private static final String CATALOG_QUERY = "SELECT table_name, column_name, column_key, column_type, " +
+            "is_nullable, column_default, extra FROM information_schema.columns WHERE table_schema = ?";
+    private static final String PRIMARY_KEY_KEY = "PRI";
+    private static final String AUTO_INCREMENT = " NOT NULL AUTO_INCREMENT";
+    private static final String NOT_NULL = " NOT NULL";
+    //the default gives rows that predate the version column a version to compare against
+    private static final String NUMERIC_VERSION = " NOT NULL DEFAULT 0";
+    private static final String TIMESTAMP_VERSION = " NOT NULL DEFAULT CURRENT_TIMESTAMP(3)";
 
     private Connection connection;
     private String dbName;
@@ -16,152 +27,160 @@ class TableCreator {
         this.dbName = dbName;
     }
 
-    void doCreate(String tableName, Map<String, String> tableColumns) throws SQLException {
-        List<String> columnsToAdd = new ArrayList<>();
+    //existing tables of the database by normalized name, read with a single catalog query
+    Map<String, TableSchema> readCatalog() throws SQLException {
+        Map<String, TableSchema> tables = new HashMap<>();
 
-        for (Map.Entry<String, String> column : tableColumns.entrySet()) {
-            String columnName = column.getKey();
-            String columnType = this.getDatabaseType(column.getValue());
+        try (PreparedStatement stmt = this.connection.prepareStatement(CATALOG_QUERY)) {
+            stmt.setString(1, this.dbName);
 
-            columnsToAdd.add(columnName + " " + columnType);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    tables.computeIfAbsent(TableSchema.normalize(rs.getString(1)), t -> new TableSchema())
+                            .addColumn(rs.getString(2), PRIMARY_KEY_KEY.equals(rs.getString(3)),
+                                    catalogDefinition(rs.getString(4), rs.getString(5), rs.getString(6), rs.getString(7)));
+                }
+            }
+        }
+
+        return tables;
+    }
+
+    //creates the table with its primary key in one statement
+    void doCreate(EntityMetadata metadata) throws SQLException {
+        List<String> columnsToAdd = new ArrayList<>();
+
+        for (ColumnMetadata column : metadata.getColumns()) {
+            columnsToAdd.add(this.getColumnDefinition(column));
         }
 
         String query = String.format(CREATE_TABLE_QUERY,
                 this.dbName,
-                tableName,
-                String.join(", ", columnsToAdd));
+                metadata.getTableName(),
+                String.join(", ", columnsToAdd),
+                metadata.getPrimaryKey().getName());
 
-        Statement stmt = this.connection.createStatement();
-        stmt.execute(query);
+        try (Statement stmt = this.connection.createStatement()) {
+            stmt.execute(query);
+        }
     }
 
-    void doUpdate(String tableName, Map<String, String> tableColumns) throws SQLException {
-        List<String> dbColumnsByName = this.getDbTableColumns(tableName);
-
-        for (Map.Entry<String, String> column : tableColumns.entrySet()) {
-            String columnName = column.getKey();
+    /*
+    Brings an existing table in line with the entity through a single ALTER TABLE, or none when nothing differs.
+    Columns are added and dropped, the primary key is only touched when it moved to another column.
+    Returns true when the table was altered.
+    */
+    boolean doUpdate(EntityMetadata metadata, TableSchema existing) throws SQLException {
+        List<String> changes = new ArrayList<>();
+        ColumnMetadata primaryKey = metadata.getPrimaryKey();
+        String oldPrimaryKey = existing.getPrimaryKey();
+        boolean primaryKeyChanged = primaryKeyChanged(metadata, existing);
+
+        Map<String, ColumnMetadata> mapped = new HashMap<>();
+        for (ColumnMetadata column : metadata.getColumns()) {
+            mapped.put(TableSchema.normalize(column.getName()), column);
+        }
 
-            if (!this.checkIfFieldExists(columnName, tableName)) {
-                this.addColumn(tableName, column);
-            } else {
-                dbColumnsByName.remove(columnName);
+        if (primaryKeyChanged && oldPrimaryKey != null) {
+            ColumnMetadata oldColumn = mapped.get(TableSchema.normalize(oldPrimaryKey));
+            if (oldColumn != null) {
+                //AUTO_INCREMENT is only allowed on a key column
+                changes.add("MODIFY COLUMN " + oldPrimaryKey + " " + this.getDatabaseType(oldColumn));
             }
+            changes.add("DROP PRIMARY KEY");
         }
 
-        for (String column : dbColumnsByName) {
-            this.removeColumn(tableName, column);
+        for (ColumnMetadata column : metadata.getColumns()) {
+            if (!existing.hasColumn(column.getName())) {
+                changes.add("ADD COLUMN " + this.getColumnDefinition(column));
+            } else if (column == primaryKey && primaryKeyChanged) {
+                changes.add("MODIFY COLUMN " + this.getColumnDefinition(column));
+            }
         }
-    }
 
-    String getPrimaryKey(String tableName) throws SQLException {
-        try (ResultSet pkColumns = connection.getMetaData().getPrimaryKeys(this.dbName, null, tableName)) {
-            if (pkColumns.first()) {
-                return pkColumns.getString("COLUMN_NAME");
+        for (String column : existing.getColumns()) {
+            if (!mapped.containsKey(TableSchema.normalize(column))) {
+                changes.add("DROP COLUMN `" + column + "`");
             }
-            return null;
         }
-    }
-
-    void dropPrimaryKey(String tableName, String pkColumnName) throws SQLException {
-        String dropPkString = " MODIFY COLUMN " + pkColumnName + " INT, DROP PRIMARY KEY";
-        String dropPkQueryString = String.format(ALTER_TABLE_QUERY,
-                this.dbName,
-                tableName,
-                dropPkString
-        );
 
-        Statement stmt = this.connection.createStatement();
-        stmt.executeUpdate(dropPkQueryString);
-    }
-
-    void setPrimaryKey(String tableName, String pkColumnName) throws SQLException {
-        String setPkString = " MODIFY COLUMN " + pkColumnName + " INT NOT NULL AUTO_INCREMENT, " +
-                " ADD CONSTRAINT PK_" + pkColumnName + " PRIMARY KEY(" + pkColumnName + ")";
+        if (primaryKeyChanged) {
+            changes.add("ADD PRIMARY KEY(" + primaryKey.getName() + ")");
+        }
 
-        String querySrting = String.format(ALTER_TABLE_QUERY,
-                this.dbName,
-                tableName,
-                setPkString
-        );
+        if (changes.isEmpty()) {
+            return false;
+        }
 
-        Statement stmt = this.connection.createStatement();
-        stmt.executeUpdate(querySrting);
+        String query = String.format(ALTER_TABLE_QUERY, this.dbName, metadata.getTableName(), String.join(", ", changes));
+        try (Statement stmt = this.connection.createStatement()) {
+            stmt.executeUpdate(query);
+        }
+        return true;
     }
 
+    /*
+    Differences of the columns kept by doUpdate() whose type, NOT NULL, default or AUTO_INCREMENT no longer
+    match the entity. doUpdate() only adds and drops columns, so these stay as they are in the table.
+    */
+    List<String> unappliedChanges(EntityMetadata metadata, TableSchema existing) {
+        List<String> unapplied = new ArrayList<>();
+        boolean primaryKeyChanged = primaryKeyChanged(metadata, existing);
+
+        for (ColumnMetadata column : metadata.getColumns()) {
+            String current = existing.getDefinition(column.getName());
+            if (current == null || column.isPrimaryKey() && primaryKeyChanged) {
+                continue;
+            }
 
-    boolean checkIfTableExists(String tableName) throws SQLException {
-        String query = "SELECT table_name " +
-                "FROM information_schema.tables " +
-                "WHERE table_schema = '" + this.dbName + "' AND table_name = '" + tableName + "';";
-
-        Statement statement = this.connection.createStatement();
-        ResultSet rs = statement.executeQuery(query);
+            String expected = TableSchema.canonical(columnType(column));
+            if (!expected.equals(current)) {
+                unapplied.add(metadata.getTableName() + "." + column.getName() + ": " + current + " -> " + expected);
+            }
+        }
 
-        return rs.first();
+        return unapplied;
     }
 
-
-    private void removeColumn(String tableName, String columnName) throws SQLException {
-        String alterString = " DROP `" + columnName + "`";
-
-        String query = String.format(ALTER_TABLE_QUERY, this.dbName, tableName, alterString);
-        PreparedStatement prepStatement = this.connection.prepareStatement(query);
-
-        prepStatement.executeUpdate();
+    //SQL type of the column followed by the NOT NULL, DEFAULT and AUTO_INCREMENT it is created with
+    static String columnType(ColumnMetadata column) {
+        //the SQL type comes from the type converter of the column, see metadata.TypeConverters
+        String type = column.getSqlType();
+        if (column.isVersion()) {
+            return ColumnMetadata.isIntegral(column.getJavaType()) ? type + NUMERIC_VERSION : type + TIMESTAMP_VERSION;
+        }
+        if (!column.isPrimaryKey()) {
+            return type;
+        }
+        //only integer keys are generated by the database
+        return ColumnMetadata.isIntegral(column.getJavaType()) ? type + AUTO_INCREMENT : type + NOT_NULL;
     }
 
-    private void addColumn(String tableName, Map.Entry<String, String> columnNameAndType) throws SQLException {
-        String columnName = columnNameAndType.getKey();
-        String columnType = this.getDatabaseType(columnNameAndType.getValue());
-        String queryString = " ADD " + columnName + " " + columnType;
-
-        String query = String.format(ALTER_TABLE_QUERY, this.dbName, tableName, queryString);
-        PreparedStatement prepStatement = this.connection.prepareStatement(query);
-
-        prepStatement.execute();
+    private static boolean primaryKeyChanged(EntityMetadata metadata, TableSchema existing) {
+        String oldPrimaryKey = existing.getPrimaryKey();
+        return oldPrimaryKey == null || !metadata.getPrimaryKey().getName().equalsIgnoreCase(oldPrimaryKey);
     }
 
-    private String getDatabaseType(String columnType) {
-        switch (columnType) {
-            case "int":
-            case "Integer":
-                return "INT";
-            case "String":
-                return "VARCHAR(50)";
-            case "Date":
-                return "DATETIME";
-            default:
-                throw new UnsupportedOperationException("Not supported Java type!");
+    //the catalog columns in the form of columnType(), NULL defaults are reported as null or 'NULL'
+    private static String catalogDefinition(String type, String nullable, String defaultValue, String extra) {
+        StringBuilder definition = new StringBuilder(type);
+        if ("NO".equals(nullable)) {
+            definition.append(NOT_NULL);
+        }
+        if (defaultValue != null && !"NULL".equalsIgnoreCase(defaultValue)) {
+            definition.append(" DEFAULT ").append(defaultValue);
+        }
+        if (extra != null && extra.toLowerCase(Locale.ROOT).contains("auto_increment")) {
+            definition.append(" AUTO_INCREMENT");
         }
+        return TableSchema.canonical(definition.toString());
     }
 
-    private boolean checkIfFieldExists(String columnName, String tableName) throws SQLException {
-        String query = "SELECT column_name " +
-                "FROM information_schema.columns " +
-                "WHERE table_name = '" + tableName + "' AND column_name = '" + columnName + "';";
-
-        Statement statement = this.connection.createStatement();
-        ResultSet rs = statement.executeQuery(query);
-
-        return rs.first();
+    private String getColumnDefinition(ColumnMetadata column) {
+        return column.getName() + " " + columnType(column);
     }
 
-    private List<String> getDbTableColumns(String tableName) throws SQLException {
-        String select = "column_name";
-
-        String query = "SELECT column_name " +
-                "FROM information_schema.columns " +
-                "WHERE table_schema = '" + this.dbName + "' AND table_name = '" + tableName + "';";
-
-        Statement statement = this.connection.createStatement();
-        ResultSet rs = statement.executeQuery(query);
-
-        List<String> tableColumns = new ArrayList<>();
-
-        while (rs.next()) {
-            tableColumns.add(rs.getString(select));
-        }
-
-        return tableColumns;
+    private String getDatabaseType(ColumnMetadata column) {
+        return column.getSqlType();
     }
-}
\ No newline at end of file
+}
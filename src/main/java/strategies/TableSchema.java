@@ -0,0 +1,58 @@
+package strategies;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+//names are matched case-insensitively, as MySQL does
+final class TableSchema {
+
+    //display widths of integer types, which MySQL 8 no longer reports
+    private static final Pattern INTEGER_WIDTH = Pattern.compile("\\b(smallint|mediumint|int|bigint)\\(\\d+\\)");
+    private static final Pattern BOOLEAN = Pattern.compile("\\bbool(ean)?\\b");
+
+    //catalog names by their normalized form
+    private final Map<String, String> columns = new LinkedHashMap<>();
+    private final Map<String, String> definitions = new LinkedHashMap<>();
+    private String primaryKey;
+
+    static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    //column type and options in one spelling for the catalog and the entities, e.g. BOOLEAN and tinyint(1)
+    static String canonical(String definition) {
+        String canonical = definition.toLowerCase(Locale.ROOT);
+        canonical = INTEGER_WIDTH.matcher(canonical).replaceAll("$1");
+        return BOOLEAN.matcher(canonical).replaceAll("tinyint(1)");
+    }
+
+    void addColumn(String column, boolean primaryKey, String definition) {
+        this.columns.put(normalize(column), column);
+        this.definitions.put(normalize(column), definition);
+        if (primaryKey) {
+            this.primaryKey = column;
+        }
+    }
+
+    //column names as spelled in the catalog
+    Collection<String> getColumns() {
+        return this.columns.values();
+    }
+
+    boolean hasColumn(String column) {
+        return this.columns.containsKey(normalize(column));
+    }
+
+    //canonical type and options of the column, null when the table has no such column
+    String getDefinition(String column) {
+        return this.definitions.get(normalize(column));
+    }
+
+    //null when the table has no primary key
+    String getPrimaryKey() {
+        return this.primaryKey;
+    }
+}
@@ -1,45 +1,70 @@
 package strategies;
 
+import metadata.EntityMetadata;
+
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.logging.Logger;
 
 public class UpdateStrategy extends SchemaInitializationStrategyAbstract {
 
+    private static final Logger LOGGER = Logger.getLogger(UpdateStrategy.class.getName());
+
     private static final String CREATE_QUERY = "CREATE DATABASE IF NOT EXISTS `%s`;";
 
-    UpdateStrategy(Connection connection, String dbName) {
-        super(connection, dbName);
+    UpdateStrategy(ConnectionSource connections, String dbName, int parallelism) {
+        super(connections, dbName, parallelism);
     }
 
     @Override
     public void execute() throws SQLException, ClassNotFoundException {
-        Statement createDbStatement = super.connection.createStatement();
-        String queryString = String.format(CREATE_QUERY, super.dbName);
-        createDbStatement.execute(queryString);
+        Set<Class<?>> entities = super.scanForEntities();
+        Map<String, TableSchema> catalog = new HashMap<>();
 
-        this.doUpdate(super.scanForEntities());
-    }
+        super.connections.withConnection(connection -> {
+            try (Statement createDbStatement = connection.createStatement()) {
+                createDbStatement.execute(String.format(CREATE_QUERY, super.dbName));
+            }
+
+            //the whole schema is read once, tables are then compared in memory
+            catalog.putAll(new TableCreator(connection, super.dbName).readCatalog());
+        });
 
-    private void doUpdate(Set<Class<?>> entities) throws SQLException {
-        for (Class entity : entities) {
-            String tableName = ClassEntityScanner.getTableName(entity);
-            String pkColumnName = ClassEntityScanner.getPrimaryKeyField(entity);
-            Map<String, String> columns = ClassEntityScanner.getColumns(entity);
+        List<String> unapplied = Collections.synchronizedList(new ArrayList<>());
+        Set<Class<?>> synchronizedEntities = Collections.synchronizedSet(new LinkedHashSet<>(entities));
+        this.doUpdate(entities, catalog, unapplied, synchronizedEntities);
 
-            if (!super.tableCreator.checkIfTableExists(tableName)) {
-                super.tableCreator.doCreate(tableName, columns);
-                super.tableCreator.setPrimaryKey(tableName, pkColumnName);
-            } else {
-                String pk = super.tableCreator.getPrimaryKey(tableName);
+        //a table whose columns were left as they are would pass VALIDATE with a recorded fingerprint
+        if (!unapplied.isEmpty()) {
+            LOGGER.warning("Column changes not applied by the UPDATE strategy, their tables are not recorded for VALIDATE:"
+                    + System.lineSeparator() + "  " + String.join(System.lineSeparator() + "  ", unapplied));
+        }
+        super.recordFingerprints(synchronizedEntities);
+    }
 
-                if (pk != null) {
-                    super.tableCreator.dropPrimaryKey(tableName, pk);
-                }
+    private void doUpdate(Set<Class<?>> entities, Map<String, TableSchema> catalog, List<String> unapplied,
+                          Set<Class<?>> synchronizedEntities) throws SQLException {
+        super.forEachEntity(entities, (tableCreator, entity) -> {
+            EntityMetadata metadata = ClassEntityScanner.getMetadata(entity);
+            TableSchema existing = catalog.get(TableSchema.normalize(metadata.getTableName()));
 
-                super.tableCreator.doUpdate(tableName, columns);
-                super.tableCreator.setPrimaryKey(tableName, pkColumnName);
+            if (existing == null) {
+                tableCreator.doCreate(metadata);
+                return;
             }
-        }
+
+            List<String> changes = tableCreator.unappliedChanges(metadata, existing);
+            if (!changes.isEmpty()) {
+                unapplied.addAll(changes);
+                synchronizedEntities.remove(entity);
+            }
+            tableCreator.doUpdate(metadata, existing);
+        });
     }
 }
@@ -0,0 +1,42 @@
+package strategies;
+
+import metadata.EntityMetadata;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//compares the fingerprints recorded by the last UPDATE or DROP_CREATE run, no DDL or catalog queries
+public class ValidateStrategy extends SchemaInitializationStrategyAbstract {
+
+    ValidateStrategy(ConnectionSource connections, String dbName, int parallelism) {
+        super(connections, dbName, parallelism);
+    }
+
+    @Override
+    public void execute() throws SQLException, ClassNotFoundException {
+        Set<Class<?>> entities = super.scanForEntities();
+        List<EntityMetadata> metadata = new ArrayList<>();
+        for (Class<?> entity : entities) {
+            metadata.add(ClassEntityScanner.getMetadata(entity));
+        }
+
+        Map<String, String[]> stored = new HashMap<>();
+        try {
+            super.connections.withConnection(connection -> stored.putAll(SchemaFingerprints.read(connection, super.dbName)));
+        } catch (SQLException e) {
+            throw new IllegalStateException(String.format(
+                    "No schema fingerprint found in %s.%s, run the UPDATE or DROP_CREATE strategy first: %s",
+                    super.dbName, SchemaFingerprints.TABLE_NAME, e.getMessage()), e);
+        }
+
+        List<String> report = SchemaFingerprints.diff(metadata, stored);
+        if (!report.isEmpty()) {
+            throw new IllegalStateException("Schema of " + super.dbName + " does not match the entities:"
+                    + System.lineSeparator() + "  " + String.join(System.lineSeparator() + "  ", report));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package entities;
+
+import annotations.Column;
+import annotations.Entity;
+import annotations.PrimaryKey;
+import annotations.Version;
+
+@Entity(name = "accounts")
+public class Account {
+
+    @PrimaryKey
+    @Column(name = "id")
+    private Integer id;
+
+    @Column(name = "owner")
+    private String owner;
+
+    @Column(name = "balance")
+    private int balance;
+
+    @Version
+    @Column(name = "version")
+    private long version;
+
+    public Account(String owner, int balance) {
+        this.owner = owner;
+        this.balance = balance;
+    }
+
+    public Account() {
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public int getBalance() {
+        return balance;
+    }
+
+    public void setBalance(int balance) {
+        this.balance = balance;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
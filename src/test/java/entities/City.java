@@ -0,0 +1,37 @@
+package entities;
+
+import annotations.Cacheable;
+import annotations.Column;
+import annotations.Entity;
+import annotations.PrimaryKey;
+
+@Entity(name = "cities")
+@Cacheable(maxSize = 100)
+public class City {
+
+    @PrimaryKey
+    @Column(name = "id")
+    private Integer id;
+
+    @Column(name = "name")
+    private String name;
+
+    public City(String name) {
+        this.name = name;
+    }
+
+    public City() {
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,33 @@
+package entities;
+
+import annotations.Column;
+import annotations.Entity;
+import annotations.PrimaryKey;
+import annotations.SequenceGenerator;
+
+@Entity(name = "tickets")
+public class Ticket {
+
+    @PrimaryKey
+    @SequenceGenerator(allocationSize = 10)
+    @Column(name = "id")
+    private long id;
+
+    @Column(name = "title")
+    private String title;
+
+    public Ticket(String title) {
+        this.title = title;
+    }
+
+    public Ticket() {
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+}
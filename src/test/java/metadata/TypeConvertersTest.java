@@ -0,0 +1,131 @@
+package metadata;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TypeConvertersTest {
+
+    private enum Size {
+        SMALL, LARGE
+    }
+
+    private Connection connection;
+
+    @BeforeEach
+    void openDatabase() throws SQLException {
+        this.connection = DriverManager.getConnection("jdbc:h2:mem:converters;MODE=MySQL");
+    }
+
+    @AfterEach
+    void closeDatabase() throws SQLException {
+        this.connection.close();
+    }
+
+    @Test
+    void textFormRoundTrips() {
+        Object[] values = {
+                42, 42L, 2.5, true, "text", new BigDecimal("12.3400"), new Date(1_700_000_000_123L),
+                LocalDate.of(2024, 2, 29), LocalDateTime.of(2024, 2, 29, 23, 15, 7), Instant.ofEpochMilli(1_700_000_000_123L),
+                UUID.fromString("123e4567-e89b-12d3-a456-426614174000"), Size.LARGE
+        };
+
+        for (Object value : values) {
+            TypeConverter converter = TypeConverters.forType(value.getClass());
+            assertEquals(value, converter.parse(converter.format(value)), value.getClass().getName());
+        }
+    }
+
+    @Test
+    void primitivesAndWrappersShareTheirSqlType() {
+        assertEquals("INT", TypeConverters.forType(int.class).getSqlType());
+        assertEquals("INT", TypeConverters.forType(Integer.class).getSqlType());
+        assertEquals("BIGINT", TypeConverters.forType(long.class).getSqlType());
+        assertEquals("CHAR(36)", TypeConverters.forType(UUID.class).getSqlType());
+    }
+
+    @Test
+    void enumConvertersAreCachedPerType() {
+        assertSame(TypeConverters.forType(Size.class), TypeConverters.forType(Size.class));
+    }
+
+    @Test
+    void unsupportedTypesAreRejected() {
+        assertThrows(UnsupportedOperationException.class, () -> TypeConverters.forType(Object.class));
+    }
+
+    @Test
+    void valuesRoundTripThroughTheDatabase() throws SQLException {
+        assertRoundTrip(Integer.class, 7);
+        assertRoundTrip(Long.class, 1L << 40);
+        assertRoundTrip(Double.class, 2.5);
+        assertRoundTrip(Boolean.class, true);
+        assertRoundTrip(String.class, "text");
+        assertRoundTrip(BigDecimal.class, new BigDecimal("12.3400"));
+        assertRoundTrip(Date.class, new Date(1_700_000_000_000L));
+        assertRoundTrip(LocalDate.class, LocalDate.of(2024, 2, 29));
+        assertRoundTrip(LocalDateTime.class, LocalDateTime.of(2024, 2, 29, 23, 15, 7));
+        assertRoundTrip(Instant.class, Instant.ofEpochSecond(1_700_000_000L));
+        assertRoundTrip(UUID.class, UUID.fromString("123e4567-e89b-12d3-a456-426614174000"));
+        assertRoundTrip(Size.class, Size.SMALL);
+
+        byte[] bytes = {1, 2, 3};
+        assertArrayEquals(bytes, (byte[]) this.roundTrip(byte[].class, bytes));
+    }
+
+    @Test
+    void nullsRoundTripAsNull() throws SQLException {
+        Class<?>[] types = {Integer.class, Long.class, Double.class, Boolean.class, String.class, BigDecimal.class,
+                Date.class, LocalDate.class, LocalDateTime.class, Instant.class, UUID.class, Size.class, byte[].class};
+
+        for (Class<?> type : types) {
+            assertNull(this.roundTrip(type, null), type.getName());
+        }
+    }
+
+    @Test
+    void nullsOfPrimitiveColumnsReadAsDefaults() throws SQLException {
+        assertEquals(0, this.roundTrip(int.class, null));
+        assertEquals(false, this.roundTrip(boolean.class, null));
+    }
+
+    private void assertRoundTrip(Class<?> type, Object value) throws SQLException {
+        assertEquals(value, this.roundTrip(type, value), type.getName());
+    }
+
+    private Object roundTrip(Class<?> type, Object value) throws SQLException {
+        TypeConverter converter = TypeConverters.forType(type);
+
+        try (Statement stmt = this.connection.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS samples");
+            stmt.execute("CREATE TABLE samples(v " + converter.getSqlType() + ")");
+        }
+        try (PreparedStatement insert = this.connection.prepareStatement("INSERT INTO samples(v) VALUES(?)")) {
+            converter.bind(insert, 1, value);
+            insert.executeUpdate();
+        }
+        try (Statement stmt = this.connection.createStatement(); ResultSet rs = stmt.executeQuery("SELECT v FROM samples")) {
+            rs.next();
+            return converter.read(rs, 1);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistogramTest {
+
+    @Test
+    void emptyHistogramReportsZero() {
+        Histogram histogram = new Histogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMean());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        Histogram histogram = new Histogram();
+        for (int i = 0; i < 32; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(15, histogram.getValueAtPercentile(50));
+        assertEquals(31, histogram.getValueAtPercentile(100));
+        assertEquals(15.5, histogram.getMean());
+    }
+
+    @Test
+    void largeValuesStayWithinTheBucketPrecision() {
+        long[] values = {33, 1_000, 123_456, 10_000_000_000L, Long.MAX_VALUE / 3};
+
+        for (long value : values) {
+            Histogram histogram = new Histogram();
+            histogram.record(value);
+            //a larger maximum, so the reported value is the upper end of the bucket and not clipped to the maximum
+            histogram.record(Long.MAX_VALUE);
+
+            long reported = histogram.getValueAtPercentile(50);
+            assertTrue(reported >= value && reported <= value + value / 32, value + " reported as " + reported);
+        }
+    }
+
+    @Test
+    void percentilesNeverExceedTheMaximum() {
+        Histogram histogram = new Histogram();
+        histogram.record(1_000_001);
+
+        assertEquals(1_000_001, histogram.getValueAtPercentile(99.9));
+        assertEquals(1_000_001, histogram.getMax());
+    }
+
+    @Test
+    void percentilesFollowTheDistribution() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        assertWithin(500, histogram.getValueAtPercentile(50));
+        assertWithin(990, histogram.getValueAtPercentile(99));
+        assertEquals(1000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void negativeValuesAreRecordedAsZero() {
+        Histogram histogram = new Histogram();
+        histogram.record(-5);
+
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected + expected / 32, expected + " reported as " + actual);
+    }
+}
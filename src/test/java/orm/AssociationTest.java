@@ -0,0 +1,53 @@
+package orm;
+
+import entities.Town;
+import entities.User;
+import metadata.MetadataRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AssociationTest {
+
+    private DBContext context;
+
+    @BeforeEach
+    void openContext() throws Exception {
+        this.context = TestDatabase.open("associations");
+    }
+
+    @AfterEach
+    void closeContext() {
+        this.context.close();
+    }
+
+    @Test
+    void referencesToUnsavedEntitiesAreRejected() throws Exception {
+        User user = new User("ivan", 30, null, "Sofia");
+        user.setTown(new Town("Sofia"));
+
+        assertThrows(IllegalStateException.class, () -> this.context.persist(user));
+        assertEquals(0, this.context.query(User.class).count());
+    }
+
+    @Test
+    void referencesWriteTheKeyOfTheTarget() throws Exception {
+        Town town = new Town("Sofia");
+        User user = new User("ivan", 30, null, "Sofia");
+        user.setTown(town);
+
+        try (Transaction transaction = this.context.begin()) {
+            //queued in this order, the town's generated key is known when the user is written
+            this.context.persist(town);
+            this.context.persist(user);
+            transaction.commit();
+        }
+
+        Object townId = MetadataRegistry.get(Town.class).getPrimaryKey().getValue(town);
+        assertEquals(1, this.context.query(User.class).where("town_id").eq(townId).count());
+        assertEquals(1, this.context.findById(Town.class, townId).getResidents().size());
+    }
+}
@@ -0,0 +1,60 @@
+package orm;
+
+import entities.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import query.Assignments;
+import query.Criteria;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BulkOperationsTest {
+
+    private DBContext context;
+
+    @BeforeEach
+    void openContext() throws Exception {
+        this.context = TestDatabase.open("bulk");
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            users.add(new User("user" + i, 10 + i, null, "Sofia"));
+        }
+        this.context.persistAll(users);
+    }
+
+    @AfterEach
+    void closeContext() {
+        this.context.close();
+    }
+
+    @Test
+    void deleteWhereRemovesTheMatchingRows() throws Exception {
+        assertEquals(8, this.context.deleteWhere(User.class, Criteria.where("age").lt(18)));
+        assertEquals(2, this.context.query(User.class).count());
+    }
+
+    @Test
+    void chunkedDeletesCoverEveryChunk() throws Exception {
+        //8 matching rows in chunks of 3 leave a last, partial chunk
+        assertEquals(8, this.context.deleteWhere(User.class, Criteria.where("age").lt(18), 3));
+        assertEquals(2, this.context.query(User.class).count());
+    }
+
+    @Test
+    void chunkedUpdatesCoverEveryChunk() throws Exception {
+        assertEquals(10, this.context.updateWhere(User.class, Assignments.set("address", "Varna"), Criteria.empty(), 4));
+        assertEquals(10, this.context.query(User.class).where("address").eq("Varna").count());
+    }
+
+    @Test
+    void chunkSizesOfTheMatchingRowCountNeedOneChunk() throws Exception {
+        assertEquals(5, this.context.updateWhere(User.class, Assignments.set("age", 0),
+                Criteria.where("age").ge(15), 5));
+        assertEquals(5, this.context.query(User.class).where("age").eq(0).count());
+    }
+}
@@ -0,0 +1,134 @@
+package orm;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionPoolTest {
+
+    private final AtomicInteger opened = new AtomicInteger();
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void openPool() throws SQLException {
+        Configuration configuration = new Configuration();
+        configuration.setMinPoolSize(1);
+        configuration.setMaxPoolSize(2);
+        configuration.setAcquireTimeout(50);
+        configuration.setIdleTimeout(0);
+
+        this.pool = new ConnectionPool(() -> {
+            this.opened.incrementAndGet();
+            return DriverManager.getConnection("jdbc:h2:mem:pool");
+        }, configuration);
+    }
+
+    @AfterEach
+    void closePool() {
+        this.pool.close();
+    }
+
+    @Test
+    void theMinimumSizeIsOpenedUpFront() {
+        assertEquals(1, this.pool.getSize());
+        assertEquals(1, this.pool.getIdleCount());
+        assertEquals(0, this.pool.getActiveCount());
+    }
+
+    @Test
+    void acquireTimesOutAtTheMaximumSize() throws SQLException {
+        PooledConnection first = this.pool.acquire();
+        PooledConnection second = this.pool.acquire();
+
+        assertEquals(2, this.pool.getSize());
+        assertEquals(2, this.pool.getActiveCount());
+        assertThrows(SQLTimeoutException.class, this.pool::acquire);
+
+        first.close();
+        second.close();
+    }
+
+    @Test
+    void releasedConnectionsAreReused() throws SQLException {
+        PooledConnection first = this.pool.acquire();
+        first.close();
+
+        assertEquals(1, this.pool.getIdleCount());
+        assertEquals(0, this.pool.getActiveCount());
+        assertSame(first, this.pool.acquire());
+        assertEquals(1, this.opened.get());
+    }
+
+    @Test
+    void aReleaseFreesAPermit() throws SQLException {
+        PooledConnection first = this.pool.acquire();
+        PooledConnection second = this.pool.acquire();
+        second.close();
+
+        PooledConnection third = this.pool.acquire();
+
+        assertSame(second, third);
+        first.close();
+        third.close();
+    }
+
+    @Test
+    void transactionSettingsAreRestoredOnRelease() throws SQLException {
+        PooledConnection first = this.pool.acquire();
+        int isolation = first.getConnection().getTransactionIsolation();
+        first.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        first.getConnection().setAutoCommit(false);
+        first.close();
+
+        PooledConnection second = this.pool.acquire();
+
+        assertSame(first, second);
+        assertEquals(isolation, second.getConnection().getTransactionIsolation());
+        assertTrue(second.getConnection().getAutoCommit());
+        second.close();
+    }
+
+    @Test
+    void recentlyReturnedConnectionsAreNotValidated() throws SQLException {
+        PooledConnection first = this.pool.acquire();
+        first.close();
+        first.getConnection().close();
+
+        assertSame(first, this.pool.acquire());
+    }
+
+    @Test
+    void connectionsIdleForAWhileAreValidated() throws Exception {
+        PooledConnection first = this.pool.acquire();
+        first.close();
+        first.getConnection().close();
+        Thread.sleep(600);
+
+        PooledConnection second = this.pool.acquire();
+
+        assertNotSame(first, second);
+        assertEquals(2, this.opened.get());
+        second.close();
+    }
+
+    @Test
+    void minimumSizeAboveTheMaximumIsRejected() {
+        Configuration configuration = new Configuration();
+        configuration.setMinPoolSize(3);
+        configuration.setMaxPoolSize(2);
+
+        assertThrows(IllegalArgumentException.class, () -> new ConnectionPool(() -> null, configuration));
+    }
+}
@@ -0,0 +1,38 @@
+package orm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MySqlDialectTest {
+
+    private final Dialect dialect = new MySqlDialect();
+
+    @Test
+    void upsertUpdatesTheNonKeyColumns() {
+        String sql = this.dialect.upsert("db.products", Arrays.asList("sku", "name", "stock"), "sku",
+                Arrays.asList("name", "stock"), 1);
+
+        assertEquals("INSERT INTO db.products(sku, name, stock) VALUES(?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE name = VALUES(name), stock = VALUES(stock)", sql);
+    }
+
+    @Test
+    void multiRowUpsertRepeatsTheValuesGroup() {
+        String sql = this.dialect.upsert("db.tags", Arrays.asList("id", "label"), "id",
+                Collections.singletonList("label"), 3);
+
+        assertEquals("INSERT INTO db.tags(id, label) VALUES(?, ?), (?, ?), (?, ?) " +
+                "ON DUPLICATE KEY UPDATE label = VALUES(label)", sql);
+    }
+
+    @Test
+    void upsertWithoutNonKeyColumnsKeepsTheRow() {
+        String sql = this.dialect.upsert("db.keys", Collections.singletonList("id"), "id", Collections.emptyList(), 1);
+
+        assertEquals("INSERT INTO db.keys(id) VALUES(?) ON DUPLICATE KEY UPDATE id = id", sql);
+    }
+}
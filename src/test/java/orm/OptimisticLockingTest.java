@@ -0,0 +1,106 @@
+package orm;
+
+import entities.Account;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import query.Assignments;
+import query.Criteria;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OptimisticLockingTest {
+
+    private DBContext context;
+
+    @BeforeEach
+    void openContext() throws Exception {
+        this.context = TestDatabase.open("locking");
+    }
+
+    @AfterEach
+    void closeContext() {
+        this.context.close();
+    }
+
+    @Test
+    void versionsStartAtZeroAndMoveOnWithEveryUpdate() throws Exception {
+        Account account = new Account("ivan", 100);
+        this.context.persist(account);
+        assertEquals(0, account.getVersion());
+
+        account.setBalance(50);
+        this.context.persist(account);
+        assertEquals(1, account.getVersion());
+        assertEquals(1, this.context.findById(Account.class, account.getId()).getVersion());
+    }
+
+    @Test
+    void updatesOfAStaleVersionAreRejected() throws Exception {
+        Account account = new Account("ivan", 100);
+        this.context.persist(account);
+
+        Account first = this.context.findById(Account.class, account.getId());
+        Account second = this.context.findById(Account.class, account.getId());
+        first.setBalance(50);
+        this.context.persist(first);
+
+        second.setBalance(70);
+        StaleStateException e = assertThrows(StaleStateException.class, () -> this.context.persist(second));
+        assertSame(second, e.getEntity());
+        assertEquals(0, second.getVersion());
+        assertEquals(50, this.context.findById(Account.class, account.getId()).getBalance());
+    }
+
+    @Test
+    void batchUpdatesReportTheStaleEntity() throws Exception {
+        Account ivan = new Account("ivan", 100);
+        Account maria = new Account("maria", 200);
+        this.context.persistAll(Arrays.asList(ivan, maria));
+
+        Account concurrent = this.context.findById(Account.class, maria.getId());
+        concurrent.setBalance(0);
+        this.context.persist(concurrent);
+
+        ivan.setBalance(10);
+        maria.setBalance(20);
+        StaleStateException e = assertThrows(StaleStateException.class, () -> this.context.persistAll(Arrays.asList(ivan, maria)));
+        assertSame(maria, e.getEntity());
+        assertEquals(1, ivan.getVersion());
+        assertEquals(0, maria.getVersion());
+    }
+
+    @Test
+    void sessionFlushesOfAStaleVersionAreRejected() throws Exception {
+        Account account = new Account("ivan", 100);
+        this.context.persist(account);
+
+        try (Session session = this.context.openSession()) {
+            Account managed = session.findById(Account.class, account.getId());
+
+            account.setBalance(0);
+            this.context.persist(account);
+
+            managed.setBalance(50);
+            assertThrows(StaleStateException.class, session::flush);
+        }
+
+        assertEquals(0, this.context.findById(Account.class, account.getId()).getBalance());
+    }
+
+    @Test
+    void bulkUpdatesMoveTheVersionOn() throws Exception {
+        Account account = new Account("ivan", 100);
+        this.context.persist(account);
+
+        assertEquals(1, this.context.updateWhere(Account.class, Assignments.set("balance", 0), Criteria.where("owner").eq("ivan")));
+
+        account.setBalance(30);
+        assertThrows(StaleStateException.class, () -> this.context.persist(account));
+        assertEquals(1, this.context.findById(Account.class, account.getId()).getVersion());
+    }
+}
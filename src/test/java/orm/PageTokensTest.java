@@ -0,0 +1,49 @@
+package orm;
+
+import entities.User;
+import metadata.ColumnMetadata;
+import metadata.EntityMetadata;
+import metadata.MetadataRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PageTokensTest {
+
+    private final EntityMetadata metadata = MetadataRegistry.get(User.class);
+
+    @Test
+    void tokensRoundTripTheKeyValues() {
+        List<ColumnMetadata> keys = Arrays.asList(this.metadata.getColumn("registration_date"), this.metadata.getPrimaryKey());
+        User user = new User("ivan", 30, new Date(1_700_000_000_123L), "Sofia");
+        user.setId(42);
+
+        String token = PageTokens.encode("registration_date", keys, user);
+
+        assertArrayEquals(new Object[]{new Date(1_700_000_000_123L), 42}, PageTokens.decode(token, "registration_date", keys));
+    }
+
+    @Test
+    void tokensOfAnotherSortOrderAreRejected() {
+        List<ColumnMetadata> keys = Arrays.asList(this.metadata.getColumn("age"), this.metadata.getPrimaryKey());
+        User user = new User("ivan", 30, null, "Sofia");
+        user.setId(42);
+
+        String token = PageTokens.encode("age", keys, user);
+
+        assertThrows(IllegalArgumentException.class, () -> PageTokens.decode(token, "user_name", keys));
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        List<ColumnMetadata> keys = Arrays.asList(this.metadata.getPrimaryKey());
+
+        assertThrows(IllegalArgumentException.class, () -> PageTokens.decode("not a token!", "id", keys));
+        assertThrows(IllegalArgumentException.class, () -> PageTokens.decode("AAA", "id", keys));
+    }
+}
@@ -0,0 +1,118 @@
+package orm;
+
+import entities.Account;
+import entities.User;
+import metadata.EntityMetadata;
+import metadata.MetadataRegistry;
+import org.junit.jupiter.api.Test;
+import query.Assignments;
+import query.Criteria;
+import query.Order;
+import query.Query;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class QueryCompilerTest {
+
+    private static final String USER_COLUMNS = "id, user_name, age, registration_date, address, town_id";
+
+    private final QueryCompiler compiler = new QueryCompiler("db");
+
+    @Test
+    void selectWithConditionsOrderingAndPaging() {
+        Query<User> query = new Query<>(User.class, null)
+                .where("age").ge(18).and("id").in(1, 2, 3)
+                .orderBy(Order.desc("user_name"))
+                .limit(10).offset(20);
+
+        assertEquals("SELECT " + USER_COLUMNS + " FROM db.users WHERE age >= ? AND id IN (?, ?, ?, ?)" +
+                " ORDER BY user_name DESC LIMIT ? OFFSET ?", this.compiler.compile(query).getSql());
+    }
+
+    @Test
+    void offsetWithoutLimitStillBindsALimit() {
+        Query<User> query = new Query<>(User.class, null).offset(5);
+
+        assertEquals("SELECT " + USER_COLUMNS + " FROM db.users LIMIT ? OFFSET ?", this.compiler.compile(query).getSql());
+    }
+
+    @Test
+    void queriesOfTheSameShapeShareTheCompiledQuery() {
+        Query<User> first = new Query<>(User.class, null).where("id").in(1, 2, 3);
+        Query<User> second = new Query<>(User.class, null).where("id").in(7, 8, 9, 10);
+
+        assertSame(this.compiler.compile(first), this.compiler.compile(second));
+    }
+
+    @Test
+    void countIgnoresOrderingAndPaging() {
+        Query<User> query = new Query<>(User.class, null).where("address").isNull()
+                .orderBy(Order.asc("age")).limit(3);
+
+        assertEquals("SELECT COUNT(*) FROM db.users WHERE address IS NULL", this.compiler.compileCount(query).getSql());
+    }
+
+    @Test
+    void unknownColumnsAreRejected() {
+        Query<User> query = new Query<>(User.class, null).where("nickname").eq("x");
+
+        assertThrows(IllegalArgumentException.class, () -> this.compiler.compile(query));
+    }
+
+    @Test
+    void bulkDeleteWithinAPrimaryKeyRange() {
+        EntityMetadata metadata = MetadataRegistry.get(User.class);
+        Criteria criteria = Criteria.where("age").lt(18);
+
+        assertEquals("DELETE FROM db.users WHERE age < ?",
+                this.compiler.compileBulk(metadata, null, criteria, false, false).getSql());
+        assertEquals("DELETE FROM db.users WHERE age < ? AND id <= ?",
+                this.compiler.compileBulk(metadata, null, criteria, false, true).getSql());
+        assertEquals("DELETE FROM db.users WHERE age < ? AND id > ? AND id <= ?",
+                this.compiler.compileBulk(metadata, null, criteria, true, true).getSql());
+        assertEquals("DELETE FROM db.users WHERE id > ?",
+                this.compiler.compileBulk(metadata, null, Criteria.empty(), true, false).getSql());
+    }
+
+    @Test
+    void bulkUpdateSetsTheAssignedColumnsInOrder() {
+        EntityMetadata metadata = MetadataRegistry.get(User.class);
+        QueryCompiler.CompiledQuery compiled = this.compiler.compileBulk(metadata,
+                Assignments.set("address", "Sofia").and("age", 30), Criteria.where("id").eq(1), false, false);
+
+        assertEquals("UPDATE db.users SET address = ?, age = ? WHERE id = ?", compiled.getSql());
+    }
+
+    @Test
+    void bulkUpdateMovesTheVersionOn() {
+        EntityMetadata metadata = MetadataRegistry.get(Account.class);
+
+        assertEquals("UPDATE db.accounts SET balance = ?, version = version + 1 WHERE owner = ?",
+                this.compiler.compileBulk(metadata, Assignments.set("balance", 0), Criteria.where("owner").eq("x"),
+                        false, false).getSql());
+        assertEquals("UPDATE db.accounts SET version = ? WHERE owner = ?",
+                this.compiler.compileBulk(metadata, Assignments.set("version", 7L), Criteria.where("owner").eq("x"),
+                        false, false).getSql());
+    }
+
+    @Test
+    void bulkUpdateRejectsPrimaryKeyAssignments() {
+        EntityMetadata metadata = MetadataRegistry.get(User.class);
+
+        assertThrows(IllegalArgumentException.class, () -> this.compiler.compileBulk(metadata,
+                Assignments.set("id", 5), Criteria.empty(), false, false));
+    }
+
+    @Test
+    void chunkBoundarySkipsTheChunkAfterThePreviousBound() {
+        EntityMetadata metadata = MetadataRegistry.get(User.class);
+        Criteria criteria = Criteria.where("age").lt(18);
+
+        assertEquals("SELECT id FROM db.users WHERE age < ? ORDER BY id LIMIT 1 OFFSET ?",
+                this.compiler.compileChunkBoundary(metadata, criteria, false).getSql());
+        assertEquals("SELECT id FROM db.users WHERE age < ? AND id > ? ORDER BY id LIMIT 1 OFFSET ?",
+                this.compiler.compileChunkBoundary(metadata, criteria, true).getSql());
+    }
+}
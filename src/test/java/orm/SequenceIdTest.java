@@ -0,0 +1,46 @@
+package orm;
+
+import entities.Ticket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SequenceIdTest {
+
+    private DBContext context;
+
+    @BeforeEach
+    void openContext() throws Exception {
+        this.context = TestDatabase.open("sequences");
+    }
+
+    @AfterEach
+    void closeContext() {
+        this.context.close();
+    }
+
+    @Test
+    void batchesInATransactionGetTheirIdsRightAway() throws Exception {
+        Ticket single = new Ticket("single");
+        List<Ticket> batch = Arrays.asList(new Ticket("first"), new Ticket("second"));
+
+        try (Transaction transaction = this.context.begin()) {
+            this.context.persist(single);
+            this.context.persistAll(batch);
+
+            assertTrue(single.getId() > 0);
+            assertTrue(batch.get(0).getId() > 0);
+            assertNotEquals(batch.get(0).getId(), batch.get(1).getId());
+            transaction.commit();
+        }
+
+        assertEquals("second", this.context.findById(Ticket.class, batch.get(1).getId()).getTitle());
+    }
+}
@@ -0,0 +1,64 @@
+package orm;
+
+import entities.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import query.Criteria;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class SessionTest {
+
+    private DBContext context;
+    private User ivan;
+    private User maria;
+
+    @BeforeEach
+    void openContext() throws Exception {
+        this.context = TestDatabase.open("sessions");
+        this.ivan = new User("ivan", 30, null, "Sofia");
+        this.maria = new User("maria", 25, null, "Varna");
+        this.context.persistAll(Arrays.asList(this.ivan, this.maria));
+    }
+
+    @AfterEach
+    void closeContext() {
+        this.context.close();
+    }
+
+    @Test
+    void idsOfAnotherNumberTypeFindTheManagedEntity() throws Exception {
+        try (Session session = this.context.openSession()) {
+            User user = session.findById(User.class, this.ivan.getId());
+
+            assertSame(user, session.findById(User.class, (long) this.ivan.getId()));
+        }
+    }
+
+    @Test
+    void findFirstByPrimaryKeyIsServedFromTheIdentityMap() throws Exception {
+        try (Session session = this.context.openSession()) {
+            User user = session.findById(User.class, this.ivan.getId());
+            this.context.deleteWhere(User.class, Criteria.where("id").eq(this.ivan.getId()));
+
+            assertSame(user, session.findFirst(User.class, "id = " + this.ivan.getId()));
+            assertSame(user, session.findFirst(User.class, " ID = '" + this.ivan.getId() + "' "));
+        }
+    }
+
+    @Test
+    void findFirstReturnsTheManagedInstance() throws Exception {
+        try (Session session = this.context.openSession()) {
+            User user = session.findById(User.class, this.maria.getId());
+
+            assertSame(user, session.findFirst(User.class, "age < 28"));
+            assertEquals("ivan", session.findFirst(User.class, "user_name = 'ivan'").getUsername());
+            assertNull(session.findFirst(User.class, "age > 90"));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package orm;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatementCacheTest {
+
+    private Connection connection;
+
+    @BeforeEach
+    void openDatabase() throws SQLException {
+        this.connection = DriverManager.getConnection("jdbc:h2:mem:statements");
+    }
+
+    @AfterEach
+    void closeDatabase() throws SQLException {
+        this.connection.close();
+    }
+
+    @Test
+    void theSameSqlReusesTheStatement() throws SQLException {
+        StatementCache cache = new StatementCache(this.connection, 4);
+
+        PreparedStatement first = cache.prepare("SELECT ?");
+        assertSame(first, cache.prepare("SELECT ?"));
+        assertNotSame(first, cache.prepare("SELECT ?", true));
+    }
+
+    @Test
+    void theLeastRecentlyUsedStatementIsClosedOverCapacity() throws SQLException {
+        StatementCache cache = new StatementCache(this.connection, 2);
+
+        PreparedStatement first = cache.prepare("SELECT 1");
+        PreparedStatement second = cache.prepare("SELECT 2");
+        cache.prepare("SELECT 1");
+        cache.prepare("SELECT 3");
+
+        assertTrue(second.isClosed());
+        assertFalse(first.isClosed());
+        assertSame(first, cache.prepare("SELECT 1"));
+    }
+
+    @Test
+    void closedStatementsAreReplaced() throws SQLException {
+        StatementCache cache = new StatementCache(this.connection, 2);
+
+        PreparedStatement first = cache.prepare("SELECT 1");
+        first.close();
+
+        assertNotSame(first, cache.prepare("SELECT 1"));
+    }
+
+    @Test
+    void closingTheCacheClosesItsStatements() throws SQLException {
+        StatementCache cache = new StatementCache(this.connection, 2);
+        PreparedStatement first = cache.prepare("SELECT 1");
+
+        cache.close();
+
+        assertTrue(first.isClosed());
+    }
+}
@@ -0,0 +1,56 @@
+package orm;
+
+import cache.CacheManager;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+//each context gets its own cache manager, so cached rows do not leak between tests
+final class TestDatabase {
+
+    static final String SCHEMA = "db";
+
+    private static final String URL = "jdbc:h2:mem:%s;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private static final String[] DDL = {
+            "CREATE SCHEMA IF NOT EXISTS " + SCHEMA,
+            "DROP TABLE IF EXISTS " + SCHEMA + ".users",
+            "DROP TABLE IF EXISTS " + SCHEMA + ".tickets",
+            "DROP TABLE IF EXISTS " + SCHEMA + ".miniorm_sequences",
+            "DROP TABLE IF EXISTS " + SCHEMA + ".towns",
+            "DROP TABLE IF EXISTS " + SCHEMA + ".cities",
+            "DROP TABLE IF EXISTS " + SCHEMA + ".accounts",
+            "CREATE TABLE " + SCHEMA + ".users(id INT AUTO_INCREMENT PRIMARY KEY, user_name VARCHAR(50), " +
+                    "age INT, registration_date DATETIME, address VARCHAR(50), town_id INT)",
+            "CREATE TABLE " + SCHEMA + ".tickets(id BIGINT PRIMARY KEY, title VARCHAR(50))",
+            "CREATE TABLE " + SCHEMA + ".towns(id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(50))",
+            "CREATE TABLE " + SCHEMA + ".cities(id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(50))",
+            "CREATE TABLE " + SCHEMA + ".accounts(id INT AUTO_INCREMENT PRIMARY KEY, owner VARCHAR(50), " +
+                    "balance INT, version BIGINT)"
+    };
+
+    private TestDatabase() {
+    }
+
+    static DBContext open(String name) throws SQLException, ClassNotFoundException {
+        return open(name, new EntityManagerBuilder());
+    }
+
+    static DBContext open(String name, EntityManagerBuilder builder) throws SQLException, ClassNotFoundException {
+        String url = String.format(URL, name);
+
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement stmt = connection.createStatement()) {
+            for (String ddl : DDL) {
+                stmt.execute(ddl);
+            }
+        }
+
+        return builder.setCacheManager(new CacheManager())
+                .setConnectionFactory(() -> DriverManager.getConnection(url))
+                .setDataSource(SCHEMA)
+                .build();
+    }
+}
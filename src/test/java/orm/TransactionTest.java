@@ -0,0 +1,174 @@
+package orm;
+
+import entities.City;
+import entities.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionTest {
+
+    private DBContext context;
+
+    @BeforeEach
+    void openContext() throws Exception {
+        this.context = TestDatabase.open("transactions");
+    }
+
+    @AfterEach
+    void closeContext() {
+        this.context.close();
+    }
+
+    @Test
+    void committedWritesArePersisted() throws Exception {
+        User user = new User("ivan", 30, null, "Sofia");
+
+        try (Transaction transaction = this.context.begin()) {
+            this.context.persist(user);
+            transaction.commit();
+        }
+
+        User found = this.context.findById(User.class, user.getId());
+        assertNotNull(found);
+        assertEquals("ivan", found.getUsername());
+    }
+
+    @Test
+    void rolledBackWritesAreDiscarded() throws Exception {
+        try (Transaction transaction = this.context.begin()) {
+            this.context.persist(new User("ivan", 30, null, "Sofia"));
+            //the read flushes the queued insert, so the rollback undoes an executed statement
+            assertEquals(1, this.context.query(User.class).count());
+            transaction.rollback();
+        }
+
+        assertEquals(0, this.context.query(User.class).count());
+    }
+
+    @Test
+    void unfinishedTransactionsRollBackOnClose() throws Exception {
+        try (Transaction transaction = this.context.begin()) {
+            this.context.persist(new User("ivan", 30, null, "Sofia"));
+            transaction.flush();
+        }
+
+        assertEquals(0, this.context.query(User.class).count());
+    }
+
+    @Test
+    void failedCallbacksRollBack() throws SQLException {
+        assertThrows(IllegalStateException.class, () -> this.context.inTransaction(() -> {
+            this.context.persist(new User("ivan", 30, null, "Sofia"));
+            this.context.query(User.class).count();
+            throw new IllegalStateException("failed");
+        }));
+
+        assertThrows(SQLException.class, () -> this.context.inTransaction(() -> {
+            this.context.persist(new User("petar", 40, null, "Varna"));
+            throw new Exception("failed");
+        }));
+
+        assertEquals(0, this.context.query(User.class).count());
+    }
+
+    @Test
+    void nestedRollbackKeepsTheOuterWrites() throws Exception {
+        try (Transaction outer = this.context.begin()) {
+            this.context.persist(new User("outer", 30, null, "Sofia"));
+
+            try (Transaction inner = this.context.begin()) {
+                assertTrue(inner.isNested());
+                this.context.persist(new User("inner", 40, null, "Varna"));
+                inner.rollback();
+            }
+
+            assertTrue(outer.isActive());
+            outer.commit();
+        }
+
+        assertEquals(1, this.context.query(User.class).count());
+        assertEquals("outer", this.context.query(User.class).first().getUsername());
+    }
+
+    @Test
+    void readsInsideATransactionSeeItsWrites() throws Exception {
+        City city = new City("Sofia");
+        this.context.persist(city);
+
+        try (Transaction transaction = this.context.begin()) {
+            city.setName("Plovdiv");
+            this.context.persist(city);
+
+            assertEquals("Plovdiv", this.context.findById(City.class, city.getId()).getName());
+            transaction.commit();
+        }
+
+        assertEquals("Plovdiv", this.context.findById(City.class, city.getId()).getName());
+    }
+
+    @Test
+    void rolledBackRowsDoNotReachTheCache() throws Exception {
+        City city = new City("Sofia");
+        this.context.persist(city);
+        assertEquals("Sofia", this.context.findById(City.class, city.getId()).getName());
+
+        try (Transaction transaction = this.context.begin()) {
+            city.setName("Rolled");
+            this.context.persist(city);
+            assertEquals("Rolled", this.context.findById(City.class, city.getId()).getName());
+            transaction.rollback();
+        }
+
+        assertEquals("Sofia", this.context.findById(City.class, city.getId()).getName());
+        assertEquals("Sofia", this.context.findAllById(City.class, Collections.singletonList(city.getId())).get(0).getName());
+    }
+
+    @Test
+    void rowsCachedByOtherThreadsBeforeTheCommitAreEvicted() throws Exception {
+        City city = new City("Sofia");
+        this.context.persist(city);
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+
+        try (Transaction transaction = this.context.begin()) {
+            city.setName("Plovdiv");
+            this.context.persist(city);
+            transaction.flush();
+
+            //another thread reads and caches the committed row between the flush and the commit
+            assertEquals("Sofia", reader.submit(() -> this.context.findById(City.class, city.getId()).getName()).get());
+            transaction.commit();
+        } finally {
+            reader.shutdown();
+        }
+
+        assertEquals("Plovdiv", this.context.findById(City.class, city.getId()).getName());
+    }
+
+    @Test
+    void rolledBackInsertsAreNotFound() throws Exception {
+        City city = new City("Sofia");
+
+        try (Transaction transaction = this.context.begin()) {
+            this.context.persist(city);
+            transaction.flush();
+            assertNotNull(this.context.findById(City.class, city.getId()));
+            transaction.rollback();
+        }
+
+        assertNull(this.context.findById(City.class, city.getId()));
+        assertFalse(this.context.find(City.class).iterator().hasNext());
+    }
+}
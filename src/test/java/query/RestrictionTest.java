@@ -0,0 +1,48 @@
+package query;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RestrictionTest {
+
+    @Test
+    void inListsArePaddedToThePowerOfTwoWithTheLastValue() {
+        List<Object> values = Criteria.where("id").in(1, 2, 3, 4, 5).getConditions().get(0).getValues();
+
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 5, 5, 5), values);
+    }
+
+    @Test
+    void inListsOfAPowerOfTwoAreNotPadded() {
+        assertEquals(1, Criteria.where("id").in(7).getConditions().get(0).getValues().size());
+        assertEquals(4, Criteria.where("id").in(1, 2, 3, 4).getConditions().get(0).getValues().size());
+    }
+
+    @Test
+    void inListsOfSimilarLengthShareAShape() {
+        assertEquals(Criteria.where("id").in(1, 2, 3).shape(), Criteria.where("id").in(4, 5, 6, 7).shape());
+    }
+
+    @Test
+    void emptyInListsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> Criteria.where("id").in(Arrays.asList()));
+    }
+
+    @Test
+    void nullComparisonsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> Criteria.where("name").eq(null));
+    }
+
+    @Test
+    void assignmentsKeepTheirOrderAndRejectRepeatedColumns() {
+        Assignments assignments = Assignments.set("b", 1).and("a", null);
+
+        assertEquals(Arrays.asList("b", "a"), assignments.shape());
+        assertThrows(IllegalArgumentException.class, () -> assignments.and("b", 2));
+    }
+}
@@ -0,0 +1,26 @@
+package strategies;
+
+import entities.Account;
+import metadata.MetadataRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SchemaFingerprintsTest {
+
+    @Test
+    void definitionsCoverTheColumnOptions() {
+        assertEquals("balance INT;id INT NOT NULL AUTO_INCREMENT PRIMARY KEY;owner VARCHAR(50);version BIGINT NOT NULL DEFAULT 0",
+                SchemaFingerprints.definition(MetadataRegistry.get(Account.class)));
+    }
+
+    @Test
+    void catalogAndEntitySpellingsAreCanonical() {
+        assertEquals("int not null auto_increment", TableSchema.canonical("int(11) NOT NULL AUTO_INCREMENT"));
+        assertEquals("int not null auto_increment", TableSchema.canonical("INT NOT NULL AUTO_INCREMENT"));
+        assertEquals("bigint not null default 0", TableSchema.canonical("bigint(20) NOT NULL DEFAULT 0"));
+        assertEquals("tinyint(1)", TableSchema.canonical("BOOLEAN"));
+        assertEquals("tinyint(1)", TableSchema.canonical("tinyint(1)"));
+        assertEquals("decimal(19,4)", TableSchema.canonical("DECIMAL(19,4)"));
+    }
+}